@@ -0,0 +1,50 @@
+package moe.herz;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UrlMetadataFetcher#isAllowedIP} with a stubbed resolver, so only the cache lookup and the
+ * address filter walk are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AddressCheckBenchmark {
+    private static final String[] HOSTS = {"bandcamp.example", "intranet.example", "v6.example", "link-local.example"};
+
+    private UrlMetadataFetcher fetcher;
+    private int next;
+
+    @Setup
+    public void setup() throws UnknownHostException {
+        Map<String, InetAddress[]> zone = Map.of(
+                "bandcamp.example", new InetAddress[]{InetAddress.getByName("93.184.216.34")},
+                "intranet.example", new InetAddress[]{InetAddress.getByName("10.20.30.40")},
+                "v6.example", new InetAddress[]{InetAddress.getByName("2a00:1450:4001:82a::200e")},
+                "link-local.example", new InetAddress[]{InetAddress.getByName("fe80::1")});
+        HostResolver resolver = new HostResolver(host -> {
+            InetAddress[] addresses = zone.get(host);
+            if (addresses == null) {
+                throw new UnknownHostException(host);
+            }
+            return addresses;
+        }, 1024, Duration.ofHours(1), Duration.ofHours(1), 1000);
+        fetcher = new UrlMetadataFetcher(resolver, new AddressFilter(), 6000, 5, new HostScheduler(2, 0));
+    }
+
+    @Benchmark
+    public boolean isAllowedIP() {
+        String host = HOSTS[next];
+        next = (next + 1) % HOSTS.length;
+        return fetcher.isAllowedIP(host);
+    }
+}
@@ -0,0 +1,77 @@
+package moe.herz;
+
+import org.openjdk.jmh.annotations.*;
+import org.pircbotx.hooks.types.GenericMessageEvent;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Musicbot#onGenericMessage} on a mix of lines resembling channel traffic: mostly chatter,
+ * some links that are skipped without a fetch, and commands that answer locally.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+    private static final String[] TRAFFIC = {
+            "anyone listening to the new Boards of Canada leak?",
+            "lol",
+            "that bassline at 2:30 though",
+            "check this cover https://example.org/images/cover-art.png",
+            "brb",
+            "!botcheck",
+            "I still think the remaster sounds worse than the original pressing",
+            "https://cdn.example.net/clips/live-set.mp4",
+            ".help",
+            "no way, they're touring again?"
+    };
+
+    private Musicbot bot;
+    private GenericMessageEvent[] events;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("bot.name", "Undine");
+        Config config = new Config(properties, StubJdbc.empty());
+
+        bot = new Musicbot(List.of(), null, null, new ReminderHandler(StubJdbc.empty(), StubJdbc.writeBehind(StubJdbc.empty()), new IdGenerator(0), "bench", 60),
+                new FlightRecorderControl(config), config.getNetworks().get(0), config);
+        Path ignored = Files.createTempFile("ignored_urls", ".txt");
+        Files.writeString(ignored, "https://ignored.example.com/\n");
+        bot.loadIgnoredUrls(ignored.toString());
+
+        events = new GenericMessageEvent[TRAFFIC.length];
+        for (int i = 0; i < TRAFFIC.length; i++) {
+            events[i] = event(TRAFFIC[i]);
+        }
+    }
+
+    static GenericMessageEvent event(String message) {
+        return (GenericMessageEvent) Proxy.newProxyInstance(DispatchBenchmark.class.getClassLoader(),
+                new Class<?>[]{GenericMessageEvent.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getMessage" -> message;
+                    case "getTimestamp" -> 0L;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    @Benchmark
+    public void dispatch() {
+        bot.onGenericMessage(events[next]);
+        next = (next + 1) % events.length;
+    }
+}
@@ -0,0 +1,156 @@
+package moe.herz;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Just enough of an IRC server for one bot connection: registration, PING, JOIN with an empty
+ * names/WHO answer, and PRIVMSG in both directions. Channel traffic is injected with
+ * {@link #sendChannelMessage}; everything the bot says goes to the reply listener.
+ */
+final class FakeIrcServer implements AutoCloseable {
+    private static final String SERVER = "irc.load.test";
+
+    private final ServerSocket serverSocket;
+    private final BiConsumer<String, String> replyListener;
+    private final Set<String> joinedChannels = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch registered = new CountDownLatch(1);
+    private volatile Writer botWriter;
+    private volatile String botNick = "*";
+
+    FakeIrcServer(BiConsumer<String, String> replyListener) throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.replyListener = replyListener;
+        Thread acceptor = new Thread(this::acceptLoop, "fake-ircd");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    boolean awaitJoined(int channels, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!registered.await(timeout, unit)) {
+            return false;
+        }
+        while (joinedChannels.size() < channels) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+
+    void sendChannelMessage(String nick, String channel, String message) {
+        send(":" + nick + "!" + nick.toLowerCase() + "@load.test PRIVMSG " + channel + " :" + message);
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread reader = new Thread(() -> serve(socket), "fake-ircd-client");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            botWriter = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            String line;
+            while ((line = in.readLine()) != null) {
+                handle(line);
+            }
+        } catch (IOException e) {
+            // Connection closed by the bot or by close()
+        }
+    }
+
+    private void handle(String line) {
+        String[] parts = line.split(" ", 3);
+        String command = parts[0].toUpperCase();
+        switch (command) {
+            case "CAP" -> {
+                if (parts.length > 1 && parts[1].equalsIgnoreCase("LS")) {
+                    send(":" + SERVER + " CAP * LS :");
+                }
+            }
+            case "NICK" -> botNick = parts[1].startsWith(":") ? parts[1].substring(1) : parts[1];
+            case "USER" -> {
+                send(":" + SERVER + " 001 " + botNick + " :Welcome to the load test network " + botNick);
+                send(":" + SERVER + " 002 " + botNick + " :Your host is " + SERVER);
+                send(":" + SERVER + " 003 " + botNick + " :This server was created today");
+                send(":" + SERVER + " 004 " + botNick + " " + SERVER + " fake-1.0 iow ntk");
+                send(":" + SERVER + " 005 " + botNick + " CHANTYPES=# PREFIX=(ov)@+ NETWORK=LoadTest :are supported by this server");
+                send(":" + SERVER + " 375 " + botNick + " :- " + SERVER + " Message of the day -");
+                send(":" + SERVER + " 376 " + botNick + " :End of /MOTD command.");
+                registered.countDown();
+            }
+            case "PING" -> send(":" + SERVER + " PONG " + SERVER + " " + (parts.length > 1 ? parts[1] : ""));
+            case "JOIN" -> {
+                for (String channel : parts[1].split(",")) {
+                    send(":" + botNick + "!bot@load.test JOIN :" + channel);
+                    send(":" + SERVER + " 353 " + botNick + " = " + channel + " :" + botNick);
+                    send(":" + SERVER + " 366 " + botNick + " " + channel + " :End of /NAMES list.");
+                    joinedChannels.add(channel);
+                }
+            }
+            case "WHO" -> send(":" + SERVER + " 315 " + botNick + " " + parts[1] + " :End of /WHO list.");
+            case "MODE" -> {
+                if (parts[1].startsWith("#")) {
+                    send(":" + SERVER + " 324 " + botNick + " " + parts[1] + " +nt");
+                }
+            }
+            case "PRIVMSG" -> {
+                if (parts.length == 3) {
+                    String text = parts[2].startsWith(":") ? parts[2].substring(1) : parts[2];
+                    replyListener.accept(parts[1], text);
+                }
+            }
+            default -> {
+                // NOTICE, QUIT and everything else needs no answer
+            }
+        }
+    }
+
+    private void send(String line) {
+        Writer writer = botWriter;
+        if (writer == null) {
+            return;
+        }
+        synchronized (this) {
+            try {
+                writer.write(line + "\r\n");
+                writer.flush();
+            } catch (IOException e) {
+                botWriter = null;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,120 @@
+package moe.herz;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local HTTP stand-ins for YouTube, Last.fm, Urban Dictionary and arbitrary web pages. Each answer
+ * echoes the token from the request (search term, user, term or page name), so the load driver can
+ * match the bot's reply to the line that caused it. Every answer carries an ETag and a matching
+ * If-None-Match gets a 304.
+ */
+final class FakeUpstreams implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "fake-upstream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double failureRate;
+
+    FakeUpstreams(long latencyMs, long jitterMs, double failureRate) throws IOException {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.failureRate = failureRate;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 512);
+        server.setExecutor(executor);
+
+        server.createContext("/youtube/v3/search", exchange -> respond(exchange, "application/json", query ->
+                "{\"items\":[{\"id\":{\"kind\":\"youtube#video\",\"videoId\":\"" + query.get("q") + "\"},"
+                        + "\"snippet\":{\"title\":\"" + query.get("q") + "\",\"channelTitle\":\"Load Test\"}}]}"));
+        server.createContext("/youtube/v3/videos", exchange -> respond(exchange, "application/json", query ->
+                "{\"items\":[{\"id\":\"" + query.get("id") + "\",\"snippet\":{\"title\":\"" + query.get("id")
+                        + "\",\"channelTitle\":\"Load Test\"},\"statistics\":{\"viewCount\":\"1234567\"}}]}"));
+        server.createContext("/lastfm/", exchange -> respond(exchange, "application/json", query ->
+                "artist.gettoptags".equals(query.get("method"))
+                        ? "{\"toptags\":{\"tag\":[{\"name\":\"ambient\"},{\"name\":\"idm\"},{\"name\":\"electronic\"}]}}"
+                        : "{\"recenttracks\":{\"track\":[{\"name\":\"" + query.get("user") + "\",\"artist\":{\"#text\":\"Load Artist\"},"
+                        + "\"album\":{\"#text\":\"Load Album\"},\"@attr\":{\"nowplaying\":\"true\"}}]}}"));
+        server.createContext("/ud/define", exchange -> respond(exchange, "application/json", query ->
+                "{\"list\":[{\"definition\":\"" + query.get("term") + " is what you call a synthetic lookup\"}]}"));
+        server.createContext("/page/", exchange -> respond(exchange, "text/html; charset=utf-8", query -> {
+            String name = exchange.getRequestURI().getPath().substring("/page/".length());
+            return "<!DOCTYPE html><html><head><title>" + name + "</title></head><body>"
+                    + "<p>Synthetic page for the load test.</p>".repeat(200) + "</body></html>";
+        }));
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    private interface Body {
+        String render(Map<String, String> query);
+    }
+
+    private void respond(HttpExchange exchange, String contentType, Body body) throws IOException {
+        try (exchange) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long delay = latencyMs + (jitterMs > 0 ? random.nextLong(jitterMs + 1) : 0);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            if (random.nextDouble() < failureRate) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            byte[] bytes = body.render(parseQuery(exchange.getRequestURI().getRawQuery())).getBytes(StandardCharsets.UTF_8);
+            String etag = "\"" + Integer.toHexString(Arrays.hashCode(bytes)) + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,81 @@
+package moe.herz;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming extraction of the fields we print from large Last.fm and Urban Dictionary responses,
+ * next to a full tree parse of the same payload for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonExtractBenchmark {
+    @Param({"50", "200"})
+    public int items;
+
+    private String recentTracks;
+    private String topTags;
+    private String definitions;
+
+    @Setup
+    public void setup() {
+        StringBuilder tracks = new StringBuilder("{\"recenttracks\":{\"track\":[");
+        StringBuilder tags = new StringBuilder("{\"toptags\":{\"tag\":[");
+        StringBuilder list = new StringBuilder("{\"list\":[");
+        for (int i = 0; i < items; i++) {
+            String separator = i > 0 ? "," : "";
+            tracks.append(separator).append("{\"artist\":{\"mbid\":\"\",\"#text\":\"Artist ").append(i)
+                    .append("\"},\"streamable\":\"0\",\"image\":[{\"size\":\"small\",\"#text\":\"https://example.com/s.png\"},")
+                    .append("{\"size\":\"large\",\"#text\":\"https://example.com/l.png\"}],\"mbid\":\"\",")
+                    .append("\"album\":{\"mbid\":\"\",\"#text\":\"Album ").append(i).append("\"},\"name\":\"Track ").append(i)
+                    .append("\",\"url\":\"https://www.last.fm/music/x\",\"date\":{\"uts\":\"1700000000\",\"#text\":\"14 Nov 2023\"}}");
+            tags.append(separator).append("{\"count\":").append(100 - i % 100).append(",\"name\":\"tag ").append(i)
+                    .append("\",\"url\":\"https://www.last.fm/tag/x\"}");
+            list.append(separator).append("{\"definition\":\"").append("A [word] people use for things. ".repeat(20))
+                    .append("\",\"permalink\":\"http://x.urbanup.com/").append(i).append("\",\"thumbs_up\":").append(i)
+                    .append(",\"author\":\"someone\",\"word\":\"word\",\"defid\":").append(i)
+                    .append(",\"example\":\"").append("An [example] sentence. ".repeat(10)).append("\"}");
+        }
+        recentTracks = tracks.append("],\"@attr\":{\"user\":\"x\",\"totalPages\":\"1\"}}}").toString();
+        topTags = tags.append("],\"@attr\":{\"artist\":\"x\"}}}").toString();
+        definitions = list.append("]}").toString();
+    }
+
+    @Benchmark
+    public LastFmService.RecentTracksReply recentTracksStreaming() throws IOException {
+        return LastFmService.readRecentTracks(new StringReader(recentTracks));
+    }
+
+    @Benchmark
+    public String recentTracksTree() {
+        JsonObject track = JsonParser.parseString(recentTracks).getAsJsonObject().getAsJsonObject("recenttracks")
+                .getAsJsonArray("track").get(0).getAsJsonObject();
+        return track.get("name").getAsString();
+    }
+
+    @Benchmark
+    public String topTagsStreaming() throws IOException {
+        return LastFmService.readTopTags(new StringReader(topTags), 3);
+    }
+
+    @Benchmark
+    public List<String> definitionsStreaming() throws IOException {
+        return UrbanDictionaryService.readDefinitions(new StringReader(definitions));
+    }
+
+    @Benchmark
+    public String definitionTree() {
+        return JsonParser.parseString(definitions).getAsJsonObject().getAsJsonArray("list").get(0)
+                .getAsJsonObject().get("definition").getAsString();
+    }
+}
@@ -0,0 +1,269 @@
+package moe.herz;
+
+import org.pircbotx.MultiBotManager;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+
+/**
+ * End-to-end load test on one machine without network access. Starts {@link FakeUpstreams} and a
+ * {@link FakeIrcServer}, connects the real bot through {@link BotInitializer}, replays a channel log
+ * (or synthetic traffic) at a fixed rate and reports reply latency percentiles and throughput.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar moe.herz.LoadHarness \
+ *     --rate 50 --duration 60 --channels 8 [--log channel.log] [--db db.properties] \
+ *     [--upstream-latency 80] [--upstream-jitter 40] [--failure-rate 0.02] [--message-delay 0]
+ * </pre>
+ *
+ * Log lines are either {@code nick<TAB>message} or {@code <nick> message}. Commands and links in the
+ * log get their argument replaced by a request token so replies can be matched; other lines are
+ * replayed as they are. Without {@code --db} the bot runs against an in-memory JDBC stub.
+ */
+public final class LoadHarness {
+    private static final Pattern TOKEN = Pattern.compile("\\br(\\d+)\\b");
+    private static final Pattern URL = Pattern.compile("https?://\\S+");
+    private static final String[] CHATTER = {
+            "anyone caught the set last night?", "lol", "that remix is way better than the original",
+            "brb, coffee", "the vinyl pressing sounds so warm", "who's going to the festival this year?",
+            "I can't stop listening to this album", "same", "the drummer is unreal on the live recording",
+            "shuffle just played something I forgot I liked"
+    };
+    private static final String[] NICKS = {
+            "aoife", "bram", "chiyo", "dario", "elin", "farid", "greta", "hiro", "ines", "jonas", "kaede", "lior"
+    };
+
+    private record Pending(String kind, long sentAt) {
+    }
+
+    private record Sample(String kind, long latencyNanos) {
+    }
+
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Sample> samples = new ConcurrentLinkedQueue<>();
+    private final AtomicLong nextToken = new AtomicLong();
+    private final AtomicLong linesSent = new AtomicLong();
+    private final AtomicLong repliesSeen = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        new LoadHarness().run(options);
+        System.exit(0);
+    }
+
+    private void run(Map<String, String> options) throws Exception {
+        double rate = Double.parseDouble(options.getOrDefault("rate", "20"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int channelCount = Integer.parseInt(options.getOrDefault("channels", "4"));
+        long drainSeconds = Long.parseLong(options.getOrDefault("drain", "15"));
+
+        List<String> channels = new ArrayList<>();
+        for (int i = 0; i < channelCount; i++) {
+            channels.add("#load" + i);
+        }
+
+        try (FakeUpstreams upstreams = new FakeUpstreams(
+                Long.parseLong(options.getOrDefault("upstream-latency", "50")),
+                Long.parseLong(options.getOrDefault("upstream-jitter", "25")),
+                Double.parseDouble(options.getOrDefault("failure-rate", "0")));
+             FakeIrcServer ircServer = new FakeIrcServer(this::onReply)) {
+
+            Properties properties = new Properties();
+            properties.setProperty("bot.name", "Undine");
+            properties.setProperty("server.name", "127.0.0.1");
+            properties.setProperty("server.port", Integer.toString(ircServer.getPort()));
+            properties.setProperty("server.ssl", "false");
+            properties.setProperty("server.messageDelayMs", options.getOrDefault("message-delay", "0"));
+            properties.setProperty("channel.name", String.join(",", channels));
+            properties.setProperty("yt.apiKey", "load-test");
+            properties.setProperty("lfm.apiKey", "load-test");
+            properties.setProperty("ud.apiKey", "load-test");
+            properties.setProperty("yt.rootUrl", upstreams.baseUrl());
+            properties.setProperty("lfm.apiUrl", upstreams.baseUrl() + "lastfm/2.0/");
+            properties.setProperty("ud.apiUrl", upstreams.baseUrl() + "ud/define");
+            properties.setProperty("net.allow", "127.0.0.0/8");
+
+            DataSource db = openDatabase(options.get("db"), properties);
+            MultiBotManager bots = new BotInitializer(new Config(properties, db)).initializeBots();
+            bots.start();
+
+            if (!ircServer.awaitJoined(channelCount, 30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("The bot did not connect and join within 30 seconds");
+            }
+
+            List<String[]> log = options.containsKey("log") ? readLog(Path.of(options.get("log"))) : null;
+            Random random = new Random(42);
+            String pageBase = upstreams.baseUrl() + "page/";
+
+            ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor();
+            long periodNanos = (long) (1e9 / rate);
+            AtomicLong lineIndex = new AtomicLong();
+            long start = System.nanoTime();
+            sender.scheduleAtFixedRate(() -> {
+                long index = lineIndex.getAndIncrement();
+                String[] line = log != null ? log.get((int) (index % log.size())) : syntheticLine(random);
+                String channel = channels.get((int) (index % channels.size()));
+                ircServer.sendChannelMessage(line[0], channel, tokenize(line[1], pageBase));
+                linesSent.incrementAndGet();
+            }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+            sender.awaitTermination(durationSeconds, TimeUnit.SECONDS);
+            sender.shutdownNow();
+            long sendingNanos = System.nanoTime() - start;
+
+            long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainSeconds);
+            while (!pending.isEmpty() && System.nanoTime() < drainDeadline) {
+                Thread.sleep(50);
+            }
+            long totalNanos = System.nanoTime() - start;
+
+            report(sendingNanos, totalNanos);
+            bots.stop();
+        }
+    }
+
+    private String tokenize(String message, String pageBase) {
+        String kind = null;
+        String rewritten = message;
+        long token = nextToken.incrementAndGet();
+
+        if (message.startsWith(".np") || message.startsWith(".yt ") || message.startsWith(".ud ")) {
+            kind = message.substring(1, 3);
+            rewritten = message.substring(0, 3) + " r" + token;
+        } else {
+            Matcher matcher = URL.matcher(message);
+            if (matcher.find()) {
+                kind = "link";
+                rewritten = message.substring(0, matcher.start()) + pageBase + "r" + token + message.substring(matcher.end());
+            }
+        }
+
+        if (kind != null) {
+            pending.put(token, new Pending(kind, System.nanoTime()));
+        }
+        return rewritten;
+    }
+
+    private void onReply(String target, String text) {
+        repliesSeen.incrementAndGet();
+        Matcher matcher = TOKEN.matcher(text);
+        while (matcher.find()) {
+            Pending request = pending.remove(Long.parseLong(matcher.group(1)));
+            if (request != null) {
+                samples.add(new Sample(request.kind(), System.nanoTime() - request.sentAt()));
+                return;
+            }
+        }
+    }
+
+    private static String[] syntheticLine(Random random) {
+        String nick = NICKS[random.nextInt(NICKS.length)];
+        int roll = random.nextInt(100);
+        if (roll < 70) return new String[]{nick, CHATTER[random.nextInt(CHATTER.length)]};
+        if (roll < 80) return new String[]{nick, "listen to this https://example.com/track"};
+        if (roll < 88) return new String[]{nick, ".np"};
+        if (roll < 95) return new String[]{nick, ".yt something"};
+        return new String[]{nick, ".ud something"};
+    }
+
+    private static List<String[]> readLog(Path path) throws IOException {
+        List<String[]> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(path)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            int tab = line.indexOf('\t');
+            if (tab > 0) {
+                lines.add(new String[]{line.substring(0, tab), line.substring(tab + 1)});
+            } else if (line.startsWith("<") && line.indexOf("> ") > 1) {
+                int end = line.indexOf("> ");
+                lines.add(new String[]{line.substring(1, end).replaceAll("^[@+%~&]", ""), line.substring(end + 2)});
+            }
+        }
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException("No usable lines in " + path);
+        }
+        return lines;
+    }
+
+    private static DataSource openDatabase(String dbPropertiesFile, Properties botProperties) throws Exception {
+        if (dbPropertiesFile == null) {
+            System.out.println("No --db given, running against the in-memory JDBC stub");
+            return StubJdbc.empty();
+        }
+        Properties dbProperties = new Properties();
+        try (FileInputStream in = new FileInputStream(dbPropertiesFile)) {
+            dbProperties.load(in);
+        }
+        botProperties.putAll(dbProperties);
+        return Config.createDataSource(dbProperties);
+    }
+
+    private void report(long sendingNanos, long totalNanos) {
+        Map<String, List<Long>> byKind = new HashMap<>();
+        List<Long> all = new ArrayList<>();
+        for (Sample sample : samples) {
+            byKind.computeIfAbsent(sample.kind(), k -> new ArrayList<>()).add(sample.latencyNanos());
+            all.add(sample.latencyNanos());
+        }
+
+        System.out.printf("%nLines sent: %d in %.1f s (%.1f lines/s)%n", linesSent.get(), sendingNanos / 1e9,
+                linesSent.get() / (sendingNanos / 1e9));
+        System.out.printf("Replies seen: %d, matched requests: %d, unanswered: %d%n",
+                repliesSeen.get(), all.size(), pending.size());
+        System.out.printf("Throughput: %.1f answered requests/s%n%n", all.size() / (totalNanos / 1e9));
+
+        System.out.printf("%-6s %8s %9s %9s %9s %9s %9s%n", "kind", "count", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        List<String> kinds = new ArrayList<>(byKind.keySet());
+        Collections.sort(kinds);
+        for (String kind : kinds) {
+            printRow(kind, byKind.get(kind));
+        }
+        printRow("all", all);
+    }
+
+    private static void printRow(String kind, List<Long> latencies) {
+        if (latencies.isEmpty()) {
+            System.out.printf("%-6s %8d%n", kind, 0);
+            return;
+        }
+        Collections.sort(latencies);
+        System.out.printf("%-6s %8d %9.1f %9.1f %9.1f %9.1f %9.1f%n", kind, latencies.size(),
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), latencies.get(latencies.size() - 1) / 1e6);
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1))) / 1e6;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
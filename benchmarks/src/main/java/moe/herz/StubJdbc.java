@@ -0,0 +1,97 @@
+package moe.herz;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.sql.DataSource;
+
+/**
+ * In-memory stand-in for the JDBC objects the handlers touch, so benchmarks measure the bot's
+ * own code instead of a database. Every query answers with the rows the row source returns for
+ * its SQL; updates report one affected row.
+ */
+final class StubJdbc {
+
+    private StubJdbc() {
+    }
+
+    static Connection connection(Function<String, List<Map<String, Object>>> rowSource) {
+        return (Connection) Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "prepareStatement" -> statement(PreparedStatement.class, rowSource, (String) args[0]);
+                    case "createStatement" -> statement(Statement.class, rowSource, null);
+                    case "isClosed" -> false;
+                    case "isValid", "getAutoCommit" -> true;
+                    default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    static DataSource dataSource(Function<String, List<Map<String, Object>>> rowSource) {
+        Connection connection = connection(rowSource);
+        return (DataSource) Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> method.getName().equals("getConnection") ? connection : defaultValue(method.getReturnType()));
+    }
+
+    static DataSource empty() {
+        return dataSource(sql -> List.of());
+    }
+
+    // Journals into a fresh temporary directory
+    static WriteBehind writeBehind(DataSource dataSource) {
+        try {
+            return new WriteBehind(dataSource, new Journal(Files.createTempDirectory("journal"), 1 << 20), 100, 50);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Object statement(Class<?> type, Function<String, List<Map<String, Object>>> rowSource, String preparedSql) {
+        return Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "executeQuery" -> resultSet(rowSource.apply(preparedSql != null ? preparedSql : (String) args[0]));
+                    case "getGeneratedKeys" -> resultSet(List.of(Map.of("id", 1L)));
+                    case "executeUpdate" -> 1;
+                    case "execute" -> false;
+                    case "executeBatch" -> new int[0];
+                    default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    private static ResultSet resultSet(List<Map<String, Object>> rows) {
+        Iterator<Map<String, Object>> iterator = rows.iterator();
+        Object[] current = new Object[1];
+        return (ResultSet) Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("next")) {
+                        current[0] = iterator.hasNext() ? iterator.next() : null;
+                        return current[0] != null;
+                    }
+                    if (method.getName().startsWith("get") && args != null && args.length == 1) {
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> row = (Map<String, Object>) current[0];
+                        Object value = args[0] instanceof Integer index
+                                ? row.values().toArray()[index - 1]
+                                : row.get((String) args[0]);
+                        return value != null ? value : defaultValue(method.getReturnType());
+                    }
+                    return defaultValue(method.getReturnType());
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0;
+        return null;
+    }
+}
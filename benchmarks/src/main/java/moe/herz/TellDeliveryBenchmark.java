@@ -0,0 +1,56 @@
+package moe.herz;
+
+import org.openjdk.jmh.annotations.*;
+import org.pircbotx.hooks.types.GenericMessageEvent;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
+/**
+ * The pending-tell check every channel message pays for in {@link TellMessageHandler#handleRegularMessage},
+ * measured for a speaker without pending tells against a growing backlog.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TellDeliveryBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int pendingTells;
+
+    private TellMessageHandler handler;
+    private GenericMessageEvent event;
+
+    @Setup
+    public void setup() {
+        List<Map<String, Object>> rows = new ArrayList<>(pendingTells);
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < pendingTells; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("sender", "sender" + (i % 500));
+            row.put("recipient", "recipient" + i);
+            row.put("message", "did you hear the new album yet?");
+            row.put("timestamp", timestamp);
+            row.put("server", "irc.example.net");
+            row.put("channel", "#music");
+            rows.add(row);
+        }
+        DataSource db = StubJdbc.dataSource(sql -> sql.startsWith("SELECT sender") ? rows : List.of());
+        handler = new TellMessageHandler(db, StubJdbc.writeBehind(db), new IdGenerator(0));
+        handler.loadPending();
+        event = DispatchBenchmark.event("just chatting");
+    }
+
+    @Benchmark
+    public void regularMessageWithoutTells() {
+        handler.handleRegularMessage("somebody", event, "irc.example.net", "#music");
+    }
+}
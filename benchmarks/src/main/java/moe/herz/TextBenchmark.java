@@ -0,0 +1,53 @@
+package moe.herz;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * String handling on the reply path: tell sanitizing, packing a definition into IRC lines and the
+ * reminder duration parser/formatter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextBenchmark {
+    private static final String TELL = "  hey, you left your headphones at the venue \u0007 last night\u0085, pick them up  ";
+    private static final String DEFINITION = ("A word used to describe the feeling of hearing a song you love in a place "
+            + "where nobody else seems to care about it. Often followed by an unsolicited explanation of the band's history.\n")
+            .repeat(6);
+
+    private ReminderHandler reminderHandler;
+    private Duration duration;
+
+    @Setup
+    public void setup() {
+        reminderHandler = new ReminderHandler(StubJdbc.empty(), StubJdbc.writeBehind(StubJdbc.empty()), new IdGenerator(0), "bench", 60);
+        duration = Duration.ofDays(3).plusHours(4).plusMinutes(5).plusSeconds(6);
+    }
+
+    @Benchmark
+    public String sanitizeMessage() {
+        return TellMessageHandler.sanitizeMessage(TELL);
+    }
+
+    @Benchmark
+    public List<String> packDefinition() {
+        return IrcLinePacker.wrap(DEFINITION, IrcLinePacker.payloadBudget("musicbot", "#channel"));
+    }
+
+    @Benchmark
+    public Duration parseDuration() {
+        return ReminderHandler.parseDuration("1w2d3h4m5s");
+    }
+
+    @Benchmark
+    public String readableDuration() {
+        return reminderHandler.getReadableDuration(duration);
+    }
+}
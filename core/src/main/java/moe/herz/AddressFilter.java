@@ -0,0 +1,152 @@
+package moe.herz;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Allow/deny rules for outgoing connections, kept as a binary prefix tree over 128 address bits.
+ * IPv4 addresses and rules live in the IPv4-mapped range (::ffff:0:0/96), so one walk of the tree
+ * answers a check for either family. The most specific matching rule wins, and addresses that
+ * match no rule are allowed.
+ */
+public final class AddressFilter {
+    private static final Logger logger = LoggerFactory.getLogger(AddressFilter.class);
+    private static final String[] DEFAULT_DENIED_RANGES = {
+            // IPv4
+            "0.0.0.0/8", "10.0.0.0/8", "100.64.0.0/10", "127.0.0.0/8", "169.254.0.0/16", "172.16.0.0/12",
+            "192.0.0.0/24", "192.0.2.0/24", "192.168.0.0/16", "198.18.0.0/15", "198.51.100.0/24",
+            "203.0.113.0/24", "224.0.0.0/4", "240.0.0.0/4",
+            // IPv6
+            "::/128", "::1/128", "::/96", "64:ff9b::/96", "64:ff9b:1::/48", "100::/64", "2001::/32",
+            "2001:db8::/32", "2002::/16", "fc00::/7", "fe80::/10", "fec0::/10", "ff00::/8"
+    };
+
+    private static final int ADDRESS_BITS = 128;
+    private static final int IPV4_MAPPED_OFFSET = 96;
+
+    private final Node root = new Node();
+
+    private static final class Node {
+        final Node[] children = new Node[2];
+        Boolean allowed;  // null if no rule ends at this prefix
+    }
+
+    public AddressFilter() {
+        for (String range : DEFAULT_DENIED_RANGES) {
+            deny(range);
+        }
+    }
+
+    /**
+     * Builds the default rules plus the comma-separated CIDR lists from {@code net.deny} and
+     * {@code net.allow}. Allowed ranges are added last, so they override a denied range of the same length.
+     */
+    public static AddressFilter fromConfig(Config config) {
+        AddressFilter filter = new AddressFilter();
+        for (String range : config.getDeniedRanges()) {
+            filter.addConfiguredRule(range, false);
+        }
+        for (String range : config.getAllowedRanges()) {
+            filter.addConfiguredRule(range, true);
+        }
+        return filter;
+    }
+
+    private void addConfiguredRule(String range, boolean allowed) {
+        if (range.isBlank()) {
+            return;
+        }
+        try {
+            addRule(range.trim(), allowed);
+        } catch (IllegalArgumentException e) {
+            logger.error("Ignoring invalid address range in config: {}", range, e);
+        }
+    }
+
+    public void deny(String cidr) {
+        addRule(cidr, false);
+    }
+
+    public void allow(String cidr) {
+        addRule(cidr, true);
+    }
+
+    public boolean isAllowed(InetAddress address) {
+        byte[] bits = toMappedBytes(address);
+        Node node = root;
+        boolean allowed = true;
+        for (int i = 0; node != null; i++) {
+            if (node.allowed != null) {
+                allowed = node.allowed;
+            }
+            if (i == ADDRESS_BITS) {
+                break;
+            }
+            node = node.children[bit(bits, i)];
+        }
+        return allowed;
+    }
+
+    private synchronized void addRule(String cidr, boolean allowed) {
+        int slash = cidr.indexOf('/');
+        String host = slash < 0 ? cidr : cidr.substring(0, slash);
+
+        InetAddress address = parseLiteral(host, cidr);
+        int maxLength = address instanceof Inet4Address ? 32 : ADDRESS_BITS;
+        int prefixLength;
+        try {
+            prefixLength = slash < 0 ? maxLength : Integer.parseInt(cidr.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid prefix length in " + cidr, e);
+        }
+        if (prefixLength < 0 || prefixLength > maxLength) {
+            throw new IllegalArgumentException("Invalid prefix length in " + cidr);
+        }
+        if (address instanceof Inet4Address) {
+            prefixLength += IPV4_MAPPED_OFFSET;
+        }
+
+        byte[] bits = toMappedBytes(address);
+        Node node = root;
+        for (int i = 0; i < prefixLength; i++) {
+            int b = bit(bits, i);
+            if (node.children[b] == null) {
+                node.children[b] = new Node();
+            }
+            node = node.children[b];
+        }
+        node.allowed = allowed;
+    }
+
+    private static InetAddress parseLiteral(String host, String cidr) {
+        // Only literals are accepted, getByName must never turn a rule into a DNS lookup
+        if (host.isEmpty() || !(host.indexOf(':') >= 0 || host.matches("[0-9.]+"))) {
+            throw new IllegalArgumentException("Not an IP range: " + cidr);
+        }
+        try {
+            return InetAddress.getByName(host);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Not an IP range: " + cidr, e);
+        }
+    }
+
+    private static byte[] toMappedBytes(InetAddress address) {
+        byte[] raw = address.getAddress();
+        if (raw.length == 16) {
+            return raw;
+        }
+        byte[] mapped = new byte[16];
+        mapped[10] = (byte) 0xFF;
+        mapped[11] = (byte) 0xFF;
+        System.arraycopy(raw, 0, mapped, 12, 4);
+        return mapped;
+    }
+
+    private static int bit(byte[] bytes, int index) {
+        return (bytes[index >>> 3] >>> (7 - (index & 7))) & 1;
+    }
+}
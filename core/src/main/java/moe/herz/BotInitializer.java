@@ -0,0 +1,158 @@
+package moe.herz;
+
+import org.pircbotx.Configuration;
+import org.pircbotx.MultiBotManager;
+import org.pircbotx.PircBotX;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+
+public class BotInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(BotInitializer.class);
+
+    private final List<NetworkConfig> networks;
+    private final ReminderHandler reminderHandler;
+    private final int reminderPollSeconds;
+    private final CompletableFuture<Void> changeFeed;
+    private final StartupTimer startup;
+    private final List<Musicbot> botInstances = new ArrayList<>();
+    private final Map<String, PircBotX> botsByServer = new LinkedHashMap<>();
+
+    public BotInitializer() {
+        this(new Config());
+    }
+
+    public BotInitializer(Config config) {
+        this.networks = config.getNetworks();
+        this.startup = new StartupTimer();
+        // Everything below reads or writes the tables, so the schema is brought up to date first
+        SchemaMigrator schemaMigrator = new SchemaMigrator(config.getDataSource());
+        startup.time("schema", () -> {
+            schemaMigrator.migrate();
+            return null;
+        });
+        startup.async("query plans", schemaMigrator::checkQueryPlans);
+
+        // Keeps the in-memory state of the handlers current with writes from other instances
+        ChangeListener changeListener = new ChangeListener(config.getDataSource());
+        // Optional features are whichever plugin modules are on the classpath
+        List<BotPlugin> plugins = ServiceLoader.load(BotPlugin.class).stream().map(ServiceLoader.Provider::get).toList();
+        logger.info("Plugins: {}", plugins.stream().map(BotPlugin::getName).toList());
+
+        // One set of services, caches and one DB pool, shared by the bots of all networks.
+        // None of them depends on another, so they are built side by side.
+        CompletableFuture<?>[] pluginsReady = plugins.stream()
+                .map(plugin -> startup.async(plugin.getName(), () -> plugin.init(config, changeListener)))
+                .toArray(CompletableFuture<?>[]::new);
+        CompletableFuture<UrlMetadataFetcher> urlMetadataFetcher = startup.async("pages", () -> new UrlMetadataFetcher(config));
+        WriteBehind writes = config.getWriteBehind();
+        // Rows still queued are written out on the way down, or kept in the journal for the next start
+        Runtime.getRuntime().addShutdownHook(new Thread(writes::close, "db-writer-shutdown"));
+        IdGenerator ids = new IdGenerator(config.getClusterNodeNumber());
+        TellMessageHandler tellMessageHandler = new TellMessageHandler(config.getDataSource(), writes, ids);
+        FlightRecorderControl flightRecorder = new FlightRecorderControl(config);
+        reminderPollSeconds = config.getReminderPollSeconds();
+
+        reminderHandler = new ReminderHandler(config.getDataSource(), writes, ids, config.getClusterNodeId(),
+                config.getReminderLeaseSeconds());
+        // The journal replay writes rows while the handlers load, so they listen for changes before
+        // loading; rows seen both ways are merged by id
+        changeListener.subscribe("tellnew", tellMessageHandler);
+        changeListener.subscribe("undinereminder", reminderHandler);
+        changeFeed = startup.async("change feed", () -> changeListener.start().join());
+        // Tells that arrive before this finishes are kept, see TellMessageHandler.loadPending
+        startup.async("tells", () -> {
+            changeFeed.join();
+            tellMessageHandler.loadPending();
+        });
+        CompletableFuture.allOf(pluginsReady).join();
+        for (NetworkConfig network : networks) {
+            Musicbot botInstance = new Musicbot(plugins, tellMessageHandler, urlMetadataFetcher.join(), reminderHandler,
+                    flightRecorder, network, config);
+            botInstance.loadIgnoredUrls("ignored_urls.txt");
+            botInstances.add(botInstance);
+        }
+        startup.milestone("services ready");
+
+        Metrics.gauge("musicbot_reminder_queue_depth", "Reminders waiting to be delivered", reminderHandler::getQueueSize);
+        Metrics.gauge("musicbot_pending_tells", "Tells waiting for their recipient", tellMessageHandler::getPendingCount);
+        Metrics.gauge("musicbot_pending_writes", "Row writes journaled but not yet in the database", writes::getPendingCount);
+        Metrics.gauge("musicbot_outbound_backlog", "IRC events still being handled, including replies held back by flood control",
+                () -> botInstances.stream().mapToInt(Musicbot::getEventsInFlight).sum());
+
+        if (config.getMetricsPort() > 0) {
+            new MetricsServer().start(config.getMetricsPort());
+        }
+    }
+
+    /**
+     * Builds one bot per configured network. The returned manager connects them all on
+     * {@link MultiBotManager#start()}; reminders keep loading in the background meanwhile, delivery
+     * does not depend on them since it claims from the database.
+     */
+    public MultiBotManager initializeBots() {
+        MultiBotManager manager = new MultiBotManager();
+        for (int i = 0; i < networks.size(); i++) {
+            PircBotX bot = new PircBotX(buildConfiguration(networks.get(i), botInstances.get(i)));
+            manager.addBot(bot);
+            botsByServer.putIfAbsent(networks.get(i).getServerName(), bot);
+        }
+        startup.milestone("bots ready to connect");
+
+        startup.async("reminders", () -> {
+            changeFeed.join();
+            reminderHandler.init();
+            reminderHandler.cleanupOldReminders(); // Drops what fell due while no instance was running
+        });
+        startup.logWhenDone();
+
+        return manager;
+    }
+
+    private Configuration buildConfiguration(NetworkConfig network, Musicbot botInstance) {
+        Configuration.Builder builder = new Configuration.Builder()
+                .setName(network.getBotName())
+                .addServer(network.getServerName(), network.getServerPort())
+                .addListener(botInstance);
+
+        if (network.isServerSsl()) {
+            builder.setSocketFactory(SSLSocketFactory.getDefault());
+        }
+        if (network.getMessageDelayMs() != null) {
+            builder.setMessageDelay(network.getMessageDelayMs());
+        }
+
+        for(String channel : network.getChannelNames()) {
+            builder.addAutoJoinChannel(channel.trim());
+        }
+
+        return builder.buildConfiguration();
+    }
+
+    public ReminderHandler getReminderHandler() {
+        return reminderHandler;
+    }
+
+    /**
+     * A sender for the reminders of the bots built by {@link #initializeBots()}.
+     */
+    public ReminderSender newReminderSender() {
+        return new ReminderSender(reminderHandler, getBotsByServer(), reminderPollSeconds);
+    }
+
+    /**
+     * The bots built by {@link #initializeBots()}, keyed by server name in configuration order.
+     */
+    public Map<String, PircBotX> getBotsByServer() {
+        return Collections.unmodifiableMap(botsByServer);
+    }
+
+}
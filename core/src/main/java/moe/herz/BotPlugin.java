@@ -0,0 +1,33 @@
+package moe.herz;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * An optional feature shipped as its own module. Plugins are found on the classpath through
+ * {@link java.util.ServiceLoader} ({@code META-INF/services/moe.herz.BotPlugin}), so leaving a
+ * module's jar out drops the feature together with its dependencies.
+ */
+public interface BotPlugin {
+
+    String getName();
+
+    /**
+     * Builds the plugin's services. Called once at startup, side by side with the other plugins.
+     */
+    void init(Config config, ChangeListener changeListener);
+
+    default List<Command> getCommands() {
+        return List.of();
+    }
+
+    default List<LinkHandler> getLinkHandlers() {
+        return List.of();
+    }
+
+    /**
+     * Runs the plugin's parsing paths on canned input, see {@link Prewarm}.
+     */
+    default void warmUp(int rounds) throws IOException {
+    }
+}
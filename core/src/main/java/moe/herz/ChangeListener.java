@@ -0,0 +1,139 @@
+package moe.herz;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Follows inserts, updates and deletes on the tables other instances (or manual SQL) write to.
+ * Triggers (see {@code V4__change_notifications.sql}) publish each changed row on the
+ * {@code musicbot_changes} channel and this listener hands it to the subscriber for that table, so
+ * in-memory state stays current without reloading. After a lost connection the subscribers reload
+ * once, since notifications sent meanwhile are gone.
+ */
+public class ChangeListener {
+    static final String CHANNEL = "musicbot_changes";
+    private static final int POLL_TIMEOUT_MS = 10_000;
+    private static final long RETRY_DELAY_MS = 5_000;
+    private static final Logger logger = LoggerFactory.getLogger(ChangeListener.class);
+
+    public interface Subscriber {
+        /**
+         * @param operation {@code INSERT}, {@code UPDATE} or {@code DELETE}
+         * @param row       the new row, or the old one for deletes, with columns as JSON fields
+         */
+        void applyChange(String operation, JsonObject row);
+
+        void reload();
+    }
+
+    private final DataSource dataSource;
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final CompletableFuture<Void> listening = new CompletableFuture<>();
+
+    public ChangeListener(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @param table the table name as Postgres reports it, i.e. lower case for unquoted names
+     */
+    public void subscribe(String table, Subscriber subscriber) {
+        subscribers.put(table, subscriber);
+    }
+
+    /**
+     * @return completes once changes are followed, or once it is clear they cannot be. Initial loads
+     * that run after it miss nothing: a row written meanwhile is in the load or in a notification.
+     */
+    public CompletableFuture<Void> start() {
+        Thread thread = new Thread(this::listen, "db-change-listener");
+        thread.setDaemon(true);
+        thread.start();
+        return listening;
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection connection = dataSource.getConnection()) {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    logger.warn("The database is not PostgreSQL, changes from other instances are not followed");
+                    listening.complete(null);
+                    return;
+                }
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+                listening.complete(null);
+                if (reconnect) {
+                    logger.info("Listening for database changes again, reloading");
+                    subscribers.values().forEach(Subscriber::reload);
+                }
+                reconnect = true;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (!Thread.currentThread().isInterrupted()) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                logger.warn("Lost the database change feed: {}", e.getMessage());
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    void dispatch(String payload) {
+        try {
+            JsonObject change = JsonParser.parseString(payload).getAsJsonObject();
+            Subscriber subscriber = subscribers.get(change.get("table").getAsString());
+            if (subscriber != null) {
+                subscriber.applyChange(change.get("op").getAsString(), change.getAsJsonObject("row"));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Could not apply change notification " + payload, e);
+        }
+    }
+
+    static String text(JsonObject row, String column) {
+        JsonElement value = row.get(column);
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+
+    // row_to_json writes timestamps as ISO-8601, with an offset for timestamptz columns
+    static Timestamp timestamp(JsonObject row, String column) {
+        String value = text(row, column);
+        if (value == null) {
+            return null;
+        }
+        int time = value.indexOf('T');
+        boolean hasOffset = value.indexOf('+', time) > 0 || value.indexOf('-', time) > 0 || value.endsWith("Z");
+        return hasOffset
+                ? Timestamp.from(OffsetDateTime.parse(value).toInstant())
+                : Timestamp.valueOf(LocalDateTime.parse(value));
+    }
+}
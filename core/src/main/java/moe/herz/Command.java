@@ -0,0 +1,16 @@
+package moe.herz;
+
+import org.pircbotx.hooks.types.GenericMessageEvent;
+
+import java.util.function.BiConsumer;
+
+/**
+ * A chat command contributed by a {@link BotPlugin}.
+ *
+ * @param name    used in metrics and traces, e.g. {@code yt}
+ * @param prefix  what a message starts with to run the command, e.g. {@code ".yt "}
+ * @param handler gets the event and the whole message
+ */
+public record Command(String name, String prefix, String usage, String description,
+                      BiConsumer<GenericMessageEvent, String> handler) {
+}
@@ -0,0 +1,18 @@
+package moe.herz;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("moe.herz.Command")
+@Label("Bot Command")
+@Category("Musicbot")
+@Description("Dispatch of one IRC message to a bot command")
+@StackTrace(false)
+class CommandEvent extends Event {
+    @Label("Command")
+    String command;
+}
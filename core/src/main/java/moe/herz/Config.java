@@ -0,0 +1,283 @@
+package moe.herz;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import javax.sql.DataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class Config {
+    private final Properties properties;
+    private DataSource db;
+    private WriteBehind writeBehind;
+    private static final Logger logger = LoggerFactory.getLogger(Config.class);
+
+    public Config() {
+        properties = new Properties();
+        try (FileInputStream in = new FileInputStream("./config2.properties")) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.error("An error occurred", e);
+        }
+        try {
+            db = createDataSource(properties);
+        } catch (RuntimeException e) {
+            logger.error("An error occurred", e);
+        }
+    }
+
+    // Used by the benchmarks and tools that bring their own settings and database
+    Config(Properties properties, DataSource db) {
+        this.properties = properties;
+        this.db = db;
+    }
+
+    // One pool for every network and handler; the properties go to the driver as before (user, password, ssl...)
+    static DataSource createDataSource(Properties properties) {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName("musicbot-db");
+        hikariConfig.setJdbcUrl(properties.getProperty("db.url"));
+        hikariConfig.setDataSourceProperties(properties);
+        hikariConfig.setMaximumPoolSize(Integer.parseInt(properties.getProperty("db.poolSize", "8")));
+        hikariConfig.setInitializationFailTimeout(-1);  // Connect in the background instead of holding up startup
+        return new HikariDataSource(hikariConfig);
+    }
+
+    /**
+     * The networks listed in {@code networks}, each configured by {@code network.<id>.<key>} with the
+     * plain {@code <key>} as its default (e.g. {@code network.libera.server.name}, then {@code server.name}).
+     * Without {@code networks} the top-level keys describe a single network.
+     */
+    public List<NetworkConfig> getNetworks() {
+        List<NetworkConfig> networks = new ArrayList<>();
+        for (String id : properties.getProperty("networks", "").split(",")) {
+            if (!id.isBlank()) {
+                networks.add(getNetwork(id.trim(), "network." + id.trim() + "."));
+            }
+        }
+        if (networks.isEmpty()) {
+            networks.add(getNetwork("default", ""));
+        }
+        return networks;
+    }
+
+    private NetworkConfig getNetwork(String id, String prefix) {
+        String delay = networkProperty(prefix, "server.messageDelayMs", null);
+        return new NetworkConfig(id,
+                networkProperty(prefix, "bot.name", "DefaultBotName"),
+                networkProperty(prefix, "server.name", "DefaultServer"),
+                Integer.parseInt(networkProperty(prefix, "server.port", "6667")),
+                Boolean.parseBoolean(networkProperty(prefix, "server.ssl", "true")),
+                delay != null ? Long.parseLong(delay) : null,
+                networkProperty(prefix, "channel.name", "").split(","),
+                networkProperty(prefix, "nickserv.pw", null),
+                networkProperty(prefix, "nickserv.email", null));
+    }
+
+    private String networkProperty(String prefix, String key, String defaultValue) {
+        return properties.getProperty(prefix + key, properties.getProperty(key, defaultValue));
+    }
+
+    public String getytapiKey() {
+        return properties.getProperty("yt.apiKey");
+    }
+
+    public String getlastfmapiKey() {
+        return properties.getProperty("lfm.apiKey");
+    }
+
+    public String getudapiKey() {
+        return properties.getProperty("ud.apiKey");
+    }
+
+    public String getYtRootUrl() {
+        return properties.getProperty("yt.rootUrl");
+    }
+
+    public int getYtCacheSize() {
+        return Integer.parseInt(properties.getProperty("yt.cacheSize", "1024"));
+    }
+
+    public int getYtCacheFreshSeconds() {
+        return Integer.parseInt(properties.getProperty("yt.cacheFreshSeconds", "60"));
+    }
+
+    public String getLastFmApiUrl() {
+        return properties.getProperty("lfm.apiUrl", "https://ws.audioscrobbler.com/2.0/");
+    }
+
+    public String getUdApiUrl() {
+        return properties.getProperty("ud.apiUrl", "https://mashape-community-urban-dictionary.p.rapidapi.com/define");
+    }
+
+    public int getUdCacheSize() {
+        return Integer.parseInt(properties.getProperty("ud.cacheSize", "256"));
+    }
+
+    public int getUdCacheTtlSeconds() {
+        return Integer.parseInt(properties.getProperty("ud.cacheTtlSeconds", "3600"));
+    }
+
+    public String getBotAdmin() {
+        return properties.getProperty("bot.admin");
+    }
+
+    public int getDnsCacheSize() {
+        return Integer.parseInt(properties.getProperty("dns.cacheSize", "1024"));
+    }
+
+    public int getDnsCacheTtl() {
+        return Integer.parseInt(properties.getProperty("dns.cacheTtl", "60"));
+    }
+
+    public int getDnsNegativeCacheTtl() {
+        return Integer.parseInt(properties.getProperty("dns.negativeCacheTtl", "10"));
+    }
+
+    public int getDnsTimeoutMs() {
+        return Integer.parseInt(properties.getProperty("dns.timeoutMs", "3000"));
+    }
+
+    public String[] getDeniedRanges() {
+        return properties.getProperty("net.deny", "").split(",");
+    }
+
+    public String[] getAllowedRanges() {
+        return properties.getProperty("net.allow", "").split(",");
+    }
+
+    public int getFetchMaxRedirects() {
+        return Integer.parseInt(properties.getProperty("fetch.maxRedirects", "5"));
+    }
+
+    public int getFetchMaxPerHost() {
+        return Integer.parseInt(properties.getProperty("fetch.maxPerHost", "2"));
+    }
+
+    public long getFetchMinSpacingMs() {
+        return Long.parseLong(properties.getProperty("fetch.minSpacingMs", "250"));
+    }
+
+    public int getMetricsPort() {
+        return Integer.parseInt(properties.getProperty("metrics.port", "0"));
+    }
+
+    public String getJfrDirectory() {
+        return properties.getProperty("jfr.directory", "recordings");
+    }
+
+    public int getJfrMaxAgeMinutes() {
+        return Integer.parseInt(properties.getProperty("jfr.maxAgeMinutes", "30"));
+    }
+
+    public long getSlowRequestThresholdMs() {
+        return Long.parseLong(properties.getProperty("trace.slowMs", "2000"));
+    }
+
+    // pid@hostname unless set, which is unique enough to tell the instances of a cluster apart
+    public String getClusterNodeId() {
+        return properties.getProperty("cluster.nodeId", ManagementFactory.getRuntimeMXBean().getName());
+    }
+
+    public int getReminderLeaseSeconds() {
+        return Integer.parseInt(properties.getProperty("reminder.leaseSeconds", "60"));
+    }
+
+    public int getReminderPollSeconds() {
+        return Integer.parseInt(properties.getProperty("reminder.pollSeconds", "30"));
+    }
+
+    /**
+     * The node number in ids made up locally, see {@link IdGenerator}. Instances sharing a database
+     * must not share a number, or their rows collide and all but one are lost; so a cluster, i.e.
+     * instances with {@code cluster.nodeId} set, has to number them explicitly. A single instance is 0.
+     */
+    public int getClusterNodeNumber() {
+        String nodeNumber = properties.getProperty("cluster.nodeNumber");
+        if (nodeNumber != null) {
+            return Integer.parseInt(nodeNumber.trim());
+        }
+        if (properties.getProperty("cluster.nodeId") != null) {
+            throw new IllegalStateException("cluster.nodeId is set but cluster.nodeNumber is not; give every instance "
+                    + "of the cluster its own number between 0 and " + IdGenerator.MAX_NODE);
+        }
+        return 0;
+    }
+
+    public int getWriteBatchSize() {
+        return Integer.parseInt(properties.getProperty("db.writeBatchSize", "100"));
+    }
+
+    public long getWriteFlushMillis() {
+        return Long.parseLong(properties.getProperty("db.writeFlushMillis", "50"));
+    }
+
+    // One directory per instance; holds the writes the database has not taken yet
+    public String getJournalDirectory() {
+        return properties.getProperty("journal.directory", "journal");
+    }
+
+    public int getJournalSegmentBytes() {
+        return Integer.parseInt(properties.getProperty("journal.segmentBytes", "16777216"));
+    }
+
+    public long getUpstreamSetting(String upstream, String setting, long defaultValue) {
+        return Long.parseLong(properties.getProperty("upstream." + upstream + "." + setting, Long.toString(defaultValue)));
+    }
+
+    public DataSource getDataSource() {
+        return db;
+    }
+
+    /**
+     * The write-behind queue shared by everything that writes rows, started on first use. Without
+     * its journal nothing written could be kept, so failing to open it fails the start.
+     */
+    public synchronized WriteBehind getWriteBehind() {
+        if (writeBehind == null) {
+            try {
+                Journal journal = new Journal(Paths.get(getJournalDirectory()), getJournalSegmentBytes());
+                writeBehind = new WriteBehind(db, journal, getWriteBatchSize(), getWriteFlushMillis());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return writeBehind;
+    }
+
+    public boolean isBotRegistered(String serverName) {
+        try (Connection connection = db.getConnection();
+             PreparedStatement stmt = connection.prepareStatement("SELECT is_registered FROM nickserv_registration WHERE server_name = ?")) {
+            stmt.setString(1, serverName);
+            ResultSet rs = Probe.query("nickserv_select").time(stmt::executeQuery);
+            if (rs.next()) {
+                return rs.getBoolean("is_registered");
+            }
+        } catch (SQLException e) {
+            logger.error("An error occurred", e);
+        }
+        return false;
+    }
+
+    public void setBotRegistered(String serverName) {
+        try (Connection connection = db.getConnection();
+             PreparedStatement stmt = connection.prepareStatement("INSERT INTO nickserv_registration(server_name, is_registered) VALUES(?, true) ON CONFLICT(server_name) DO UPDATE SET is_registered = EXCLUDED.is_registered")) {
+            stmt.setString(1, serverName);
+            Probe.query("nickserv_upsert").run(stmt::executeUpdate);
+        } catch (SQLException e) {
+            logger.error("An error occurred", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package moe.herz;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * On-demand Flight Recorder session for incident capture, driven by the {@code !jfr} admin command.
+ */
+public class FlightRecorderControl {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderControl.class);
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final Duration maxAge;
+    private Recording recording;
+
+    public FlightRecorderControl(Config config) {
+        this.directory = Path.of(config.getJfrDirectory());
+        this.maxAge = Duration.ofMinutes(config.getJfrMaxAgeMinutes());
+    }
+
+    public synchronized String start() {
+        if (recording != null) {
+            return "A recording is already running.";
+        }
+        try {
+            Recording newRecording = new Recording(Configuration.getConfiguration("profile"));
+            newRecording.setName("musicbot");
+            newRecording.setToDisk(true);
+            newRecording.setMaxAge(maxAge);
+            newRecording.enable(CommandEvent.class);
+            newRecording.enable(UpstreamCallEvent.class);
+            newRecording.enable(QueryEvent.class);
+            newRecording.start();
+            recording = newRecording;
+            return "Flight recording started, keeping the last " + maxAge.toMinutes() + " minutes.";
+        } catch (IOException | ParseException e) {
+            logger.error("An error occurred while starting the flight recording", e);
+            return "Could not start the flight recording.";
+        }
+    }
+
+    public synchronized String dump() {
+        if (recording == null) {
+            return "No recording is running. Use !jfr start first.";
+        }
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve("musicbot-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr");
+            recording.dump(file);
+            logger.info("Flight recording dumped to {}", file.toAbsolutePath());
+            return "Recording dumped to " + file;
+        } catch (IOException e) {
+            logger.error("An error occurred while dumping the flight recording", e);
+            return "Could not dump the flight recording.";
+        }
+    }
+
+    public synchronized String stop() {
+        if (recording == null) {
+            return "No recording is running.";
+        }
+        recording.close();
+        recording = null;
+        return "Flight recording stopped.";
+    }
+}
@@ -10,33 +10,30 @@ public class HelpService {
     private final Map<String, String> commands = new HashMap<>();
 
     public HelpService() {
-        commands.put(
-                ".yt <search term>",
-                "Searches YouTube and returns a video matching the provided search term."
-        );
-        commands.put(
-                ".np <last.fm username>",
-                "Displays the most recent song played by the specified Last.fm username. You only need to provide your Last.fm username once."
-        );
         commands.put(
                 ".in <duration (w/d/h/m/s)> <message>",
                 "Sets a reminder for you. You'll be notified with the provided message after the specified duration. Duration format: Number followed by 'w' for weeks, 'd' for days, 'h' for hours, 'm' for minutes, or 's' for seconds (e.g., '10m' for 10 minutes)."
         );
-        commands.put(
-                ".ud <search term>",
-                "Searches Urban Dictionary and provides a definition for the specified term."
-        );
         commands.put(
                 ".tell <username> <message>",
                 "Saves a message for a user. The user will receive the message the next time they are active."
         );
     }
 
-    public void sendHelp(User user, PircBotX bot) {
-        bot.sendIRC().message(user.getNick(), "Here are all my commands:");
+    // Commands of plugins, which only exist when their module is installed
+    public void addCommand(String usage, String description) {
+        commands.put(usage, description);
+    }
 
+    public void sendHelp(User user, PircBotX bot) {
+        IrcLinePacker packer = IrcLinePacker.forTarget(bot.getNick(), user.getNick(), " | ");
+        packer.add("Here are all my commands:");
         for (Map.Entry<String, String> command : commands.entrySet()) {
-            bot.sendIRC().message(user.getNick(), command.getKey() + " - " + command.getValue());
+            packer.add(command.getKey() + " - " + command.getValue());
+        }
+
+        for (String line : packer.lines()) {
+            Probe.send("help").run(() -> bot.sendIRC().message(user.getNick(), line));
         }
     }
 }
@@ -0,0 +1,100 @@
+package moe.herz;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Resolves hostnames off the calling thread and keeps the answers in a bounded cache, so a
+ * hostname is looked up at most once per TTL no matter how many checks and connects need it.
+ */
+public class HostResolver {
+    private static final Logger logger = LoggerFactory.getLogger(HostResolver.class);
+
+    @FunctionalInterface
+    interface Lookup {
+        InetAddress[] lookup(String host) throws UnknownHostException;
+    }
+
+    private final Lookup lookup;
+    private final ExpiringCache<String, List<InetAddress>> cache;
+    private final ConcurrentHashMap<String, CompletableFuture<List<InetAddress>>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final long timeoutMs;
+
+    public HostResolver(Config config) {
+        this(InetAddress::getAllByName, config.getDnsCacheSize(), Duration.ofSeconds(config.getDnsCacheTtl()),
+                Duration.ofSeconds(config.getDnsNegativeCacheTtl()), config.getDnsTimeoutMs());
+    }
+
+    HostResolver(Lookup lookup, int cacheSize, Duration ttl, Duration negativeTtl, long timeoutMs) {
+        this.lookup = lookup;
+        this.cache = new ExpiringCache<>(cacheSize);
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.timeoutMs = timeoutMs;
+        this.executor = Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "dns-resolver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<List<InetAddress>> resolveAsync(String host) {
+        String key = host.toLowerCase();
+        List<InetAddress> cached = cache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        // Concurrent lookups of the same name share one resolution
+        CompletableFuture<List<InetAddress>> future = inFlight.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> {
+            try {
+                List<InetAddress> addresses = List.of(lookup.lookup(k));
+                cache.put(k, addresses, ttl);
+                return addresses;
+            } catch (UnknownHostException e) {
+                cache.put(k, List.of(), negativeTtl);
+                return List.of();
+            }
+        }, executor));
+        future.whenComplete((addresses, e) -> inFlight.remove(key, future));
+        return future;
+    }
+
+    /**
+     * Blocking variant used on the request path. An empty answer or a lookup that exceeds the
+     * configured timeout is reported as an {@link UnknownHostException}.
+     */
+    public List<InetAddress> resolve(String host) throws UnknownHostException {
+        try {
+            List<InetAddress> addresses = resolveAsync(host).get(timeoutMs, TimeUnit.MILLISECONDS);
+            if (addresses.isEmpty()) {
+                throw new UnknownHostException(host);
+            }
+            return addresses;
+        } catch (TimeoutException e) {
+            logger.warn("DNS lookup for {} timed out after {} ms", host, timeoutMs);
+            throw new UnknownHostException(host);
+        } catch (ExecutionException e) {
+            logger.error("An error occurred while resolving " + host, e);
+            throw new UnknownHostException(host);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnknownHostException(host);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package moe.herz;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Politeness queue per host: at most {@code maxPerHost} requests to a host run at once, their
+ * starts are at least {@code minSpacingMs} apart, and waiting requests go in arrival order.
+ */
+public class HostScheduler {
+    private static final int SWEEP_THRESHOLD = 256;
+
+    private final int maxPerHost;
+    private final long minSpacingNanos;
+    private final ConcurrentHashMap<String, HostSlot> hosts = new ConcurrentHashMap<>();
+
+    private static final class HostSlot {
+        final ArrayDeque<Object> queue = new ArrayDeque<>();
+        int active;
+        volatile long nextStart = System.nanoTime();
+        int users;  // callers holding or waiting for this slot, guarded by the map's compute
+
+        boolean isIdle() {
+            return users == 0 && System.nanoTime() - nextStart >= 0;
+        }
+    }
+
+    public HostScheduler(int maxPerHost, long minSpacingMs) {
+        this.maxPerHost = maxPerHost;
+        this.minSpacingNanos = TimeUnit.MILLISECONDS.toNanos(minSpacingMs);
+    }
+
+    /**
+     * Runs the request once the host has a free slot.
+     *
+     * @param deadline {@link System#nanoTime} by which the request has to have started
+     * @throws UpstreamUnavailableException if no slot came free before the deadline
+     */
+    public <T> T run(String host, long deadline, Callable<T> request) throws IOException {
+        String key = host.toLowerCase();
+        if (hosts.size() > SWEEP_THRESHOLD) {
+            sweep();
+        }
+        HostSlot slot = hosts.compute(key, (h, existing) -> {
+            HostSlot s = existing != null ? existing : new HostSlot();
+            s.users++;
+            return s;
+        });
+        try {
+            acquire(host, slot, deadline);
+            try {
+                return request.call();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            } finally {
+                release(slot);
+            }
+        } finally {
+            hosts.computeIfPresent(key, (h, s) -> {
+                s.users--;
+                return s;
+            });
+        }
+    }
+
+    private void acquire(String host, HostSlot slot, long deadline) throws IOException {
+        Object ticket = new Object();
+        long start = System.nanoTime();
+        synchronized (slot) {
+            slot.queue.addLast(ticket);
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    if (slot.queue.peekFirst() == ticket && slot.active < maxPerHost && now - slot.nextStart >= 0) {
+                        break;
+                    }
+                    long remaining = deadline - now;
+                    if (remaining <= 0) {
+                        Metrics.counter("musicbot_host_queue_timeouts_total",
+                                "Page fetches dropped after waiting too long for their host").increment();
+                        throw new UpstreamUnavailableException(host + " is busy, gave up waiting for a slot");
+                    }
+                    // Only the head of the queue can be held back by the spacing alone
+                    long wait = slot.queue.peekFirst() == ticket && slot.active < maxPerHost
+                            ? Math.min(remaining, slot.nextStart - now) : remaining;
+                    TimeUnit.NANOSECONDS.timedWait(slot, wait);
+                }
+                slot.queue.removeFirst();
+                slot.active++;
+                slot.nextStart = System.nanoTime() + minSpacingNanos;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + host);
+            } finally {
+                if (slot.queue.remove(ticket)) {
+                    // We gave up, the next in line may be able to go now
+                    slot.notifyAll();
+                }
+            }
+            slot.notifyAll();
+        }
+        Metrics.histogram("musicbot_host_queue_wait_seconds",
+                "Time page fetches waited for a free slot on their host").observeNanos(System.nanoTime() - start);
+    }
+
+    private void release(HostSlot slot) {
+        synchronized (slot) {
+            slot.active--;
+            slot.notifyAll();
+        }
+    }
+
+    private void sweep() {
+        for (String host : hosts.keySet()) {
+            hosts.computeIfPresent(host, (h, s) -> s.isIdle() ? null : s);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package moe.herz;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Packs reply text into as few PRIVMSG lines as possible. Lines are filled up to the real 512-byte
+ * IRC limit, measured in UTF-8 bytes after the server has added our prefix, the command and the
+ * target. Items are joined on one line with a separator; text is wrapped on word boundaries, and
+ * only a single word longer than a whole line is cut, never inside a character.
+ */
+public class IrcLinePacker {
+    private static final int MAX_LINE_BYTES = 512;
+    // The server relays our lines as ":nick!user@host PRIVMSG ..."; reserve the usual maximum
+    // ident (10) and hostname (63) lengths, since we can't know what the server will put there.
+    private static final int RESERVED_USER_HOST_BYTES = 1 + 10 + 1 + 63;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int budget;
+    private final String separator;
+    private final int separatorBytes;
+    private final List<String> lines = new ArrayList<>();
+    private final StringBuilder current = new StringBuilder();
+    private int currentBytes;
+
+    public IrcLinePacker(int budget, String separator) {
+        if (budget < 4) {
+            throw new IllegalArgumentException("Line budget too small: " + budget);
+        }
+        this.budget = budget;
+        this.separator = separator;
+        this.separatorBytes = utf8Length(separator);
+    }
+
+    public static IrcLinePacker forTarget(String nick, String target, String separator) {
+        return new IrcLinePacker(payloadBudget(nick, target), separator);
+    }
+
+    /**
+     * Bytes left for the message text of a PRIVMSG from {@code nick} to {@code target}.
+     */
+    public static int payloadBudget(String nick, String target) {
+        int overhead = 1 + utf8Length(nick) + RESERVED_USER_HOST_BYTES
+                + " PRIVMSG ".length() + utf8Length(target) + " :".length() + "\r\n".length();
+        return MAX_LINE_BYTES - overhead;
+    }
+
+    public static List<String> wrap(String text, int budget) {
+        return new IrcLinePacker(budget, " ").add(text).lines();
+    }
+
+    /**
+     * Adds one item. Line breaks and runs of whitespace inside it collapse to single spaces. An item
+     * that fits on a line of its own is never split across two lines.
+     */
+    public IrcLinePacker add(String text) {
+        String normalized = WHITESPACE.matcher(text.trim()).replaceAll(" ");
+        if (normalized.isEmpty()) {
+            return this;
+        }
+        int bytes = utf8Length(normalized);
+        if (currentBytes > 0 && currentBytes + separatorBytes + bytes > budget && bytes <= budget) {
+            flush();
+        }
+
+        String joiner = currentBytes > 0 ? separator : "";
+        for (String word : normalized.split(" ")) {
+            appendWord(word, joiner);
+            joiner = " ";
+        }
+        return this;
+    }
+
+    /**
+     * Finishes the current line and returns all lines packed so far.
+     */
+    public List<String> lines() {
+        flush();
+        return new ArrayList<>(lines);
+    }
+
+    private void appendWord(String word, String joiner) {
+        int wordBytes = utf8Length(word);
+        if (currentBytes > 0 && currentBytes + utf8Length(joiner) + wordBytes <= budget) {
+            current.append(joiner).append(word);
+            currentBytes += utf8Length(joiner) + wordBytes;
+            return;
+        }
+        flush();
+        while (wordBytes > budget) {
+            int end = fittingPrefix(word, budget);
+            lines.add(word.substring(0, end));
+            word = word.substring(end);
+            wordBytes = utf8Length(word);
+        }
+        current.append(word);
+        currentBytes = wordBytes;
+    }
+
+    private void flush() {
+        if (currentBytes > 0) {
+            lines.add(current.toString());
+            current.setLength(0);
+            currentBytes = 0;
+        }
+    }
+
+    // Longest prefix of s, in chars, that fits in the given bytes without splitting a surrogate pair
+    private static int fittingPrefix(String s, int maxBytes) {
+        int bytes = 0;
+        int i = 0;
+        while (i < s.length()) {
+            int codePoint = s.codePointAt(i);
+            int length = utf8Length(codePoint);
+            if (bytes + length > maxBytes) {
+                break;
+            }
+            bytes += length;
+            i += Character.charCount(codePoint);
+        }
+        return i;
+    }
+
+    static int utf8Length(CharSequence s) {
+        int bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static int utf8Length(int codePoint) {
+        return codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+    }
+}
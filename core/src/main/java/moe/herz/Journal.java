@@ -0,0 +1,323 @@
+package moe.herz;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only log of the writes the database has not taken yet, so they survive an outage
+ * or a restart. Records go into memory-mapped segment files of fixed size; appends that arrive
+ * while one fsync runs are made durable together by the next. Once every record of a full segment
+ * is acknowledged the segment is deleted.
+ *
+ * <p>Positions are global: a segment is named after the position it starts at. Each segment starts
+ * with a header holding the acknowledged position as last known, so a restart replays from there;
+ * the header is not synced on every acknowledgement, which means the last few records may be
+ * replayed twice and the statements in the journal must be safe to repeat.
+ */
+public final class Journal implements AutoCloseable {
+    private static final int MAGIC = 0x4d424a31; // "MBJ1"
+    private static final int HEADER = 16;  // magic, reserved, acknowledged position
+    private static final int RECORD_HEADER = 8;  // payload length, CRC32 of the payload
+    private static final String SUFFIX = ".journal";
+    private static final Logger logger = LoggerFactory.getLogger(Journal.class);
+
+    public record Record(long position, long next, byte[] payload) {
+    }
+
+    private static final class Segment {
+        final long base;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int end;  // offset after the last record
+
+        Segment(long base, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.base = base;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final List<Segment> segments = new ArrayList<>();
+    private final Object syncLock = new Object();
+    private long written;
+    private volatile long synced;
+    private long acknowledged;
+    private int unacknowledged;
+
+    /**
+     * Opens the journal in {@code directory}, recovering the records a previous run left behind.
+     * The directory belongs to one instance at a time.
+     */
+    public Journal(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        }
+        lock = acquired;
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Journal " + directory + " is in use by another instance");
+        }
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (Path path : files) {
+            String name = path.getFileName().toString();
+            Segment segment = map(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), path);
+            acknowledged = Math.max(acknowledged, segment.buffer.getLong(8));
+            segment.end = scan(segment);
+            segments.add(segment);
+        }
+        if (segments.isEmpty()) {
+            segments.add(map(0, directory.resolve(name(0))));
+        }
+
+        Segment last = segments.get(segments.size() - 1);
+        // Whatever follows the last intact record is a torn write; clear it so it is never read as a record
+        for (int offset = last.end; offset < last.buffer.capacity(); offset++) {
+            if (last.buffer.get(offset) != 0) {
+                last.buffer.put(offset, (byte) 0);
+            }
+        }
+        written = last.base + last.end;
+        synced = written;
+        acknowledged = Math.max(acknowledged, segments.get(0).base + HEADER);
+        unacknowledged = read(acknowledged, Integer.MAX_VALUE).size();
+        if (unacknowledged > 0) {
+            logger.info("Replaying {} journaled writes", unacknowledged);
+        }
+    }
+
+    private static String name(long base) {
+        return String.format("%020d%s", base, SUFFIX);
+    }
+
+    private Segment map(long base, Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), segmentBytes);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putLong(8, acknowledged);
+        }
+        Segment segment = new Segment(base, path, channel, buffer);
+        segment.end = HEADER;
+        return segment;
+    }
+
+    private static int scan(Segment segment) {
+        int offset = HEADER;
+        while (true) {
+            byte[] payload = payloadAt(segment, offset);
+            if (payload == null) {
+                return offset;
+            }
+            offset += RECORD_HEADER + payload.length;
+        }
+    }
+
+    // The payload of the record at the offset, or null where there is none or it is torn
+    private static byte[] payloadAt(Segment segment, int offset) {
+        MappedByteBuffer buffer = segment.buffer;
+        if (offset + RECORD_HEADER > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > buffer.capacity() - offset - RECORD_HEADER) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(offset + RECORD_HEADER, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == buffer.getInt(offset + 4) ? payload : null;
+    }
+
+    /**
+     * Appends a record. It is not durable before {@link #sync} with the returned position.
+     *
+     * @return the position after the record
+     */
+    public synchronized long append(byte[] payload) throws IOException {
+        if (payload.length == 0 || payload.length > segmentBytes - HEADER - RECORD_HEADER) {
+            throw new IllegalArgumentException("Journal records must be between 1 and " + (segmentBytes - HEADER - RECORD_HEADER) + " bytes");
+        }
+        Segment segment = segments.get(segments.size() - 1);
+        if (segment.end + RECORD_HEADER + payload.length > segment.buffer.capacity()) {
+            // Made durable here, later syncs only look at the newest segment
+            segment.buffer.force();
+            long base = segment.base + segment.buffer.capacity();
+            segment = map(base, directory.resolve(name(base)));
+            segments.add(segment);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        segment.buffer.put(segment.end + RECORD_HEADER, payload);
+        segment.buffer.putInt(segment.end + 4, (int) crc.getValue());
+        segment.buffer.putInt(segment.end, payload.length);
+        segment.end += RECORD_HEADER + payload.length;
+        written = segment.base + segment.end;
+        unacknowledged++;
+        return written;
+    }
+
+    /**
+     * Makes every record up to {@code position} durable. Callers arriving while another one syncs
+     * wait for it and are usually covered by it, or else share the next fsync.
+     */
+    public void sync(long position) throws IOException {
+        if (synced >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= position) {
+                return;
+            }
+            long target;
+            MappedByteBuffer buffer;
+            synchronized (this) {
+                target = written;
+                buffer = segments.get(segments.size() - 1).buffer;
+            }
+            buffer.force();
+            synced = target;
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Up to {@code max} durable records starting at {@code position}, which is the start of the
+     * journal or the {@link Record#next} of a record read before.
+     */
+    public synchronized List<Record> read(long position, int max) {
+        List<Record> records = new ArrayList<>();
+        int index = segmentIndex(position);
+        if (index < 0) {
+            index = 0;
+            position = segments.get(0).base + HEADER;
+        }
+        while (records.size() < max && index < segments.size()) {
+            Segment segment = segments.get(index);
+            int offset = (int) (position - segment.base);
+            byte[] payload = offset < segment.end ? payloadAt(segment, offset) : null;
+            if (payload == null) {
+                index++;
+                if (index < segments.size()) {
+                    position = segments.get(index).base + HEADER;
+                }
+                continue;
+            }
+            long next = position + RECORD_HEADER + payload.length;
+            if (next > synced) {
+                break;
+            }
+            records.add(new Record(position, next, payload));
+            position = next;
+        }
+        return records;
+    }
+
+    private int segmentIndex(long position) {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            if (position >= segments.get(i).base) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Waits until records after {@code position} are durable.
+     *
+     * @return false if none arrived in time
+     */
+    public synchronized boolean await(long position, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (synced <= position) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Marks the records before {@code position} as written to the database and deletes the
+     * segments that hold nothing else.
+     */
+    public synchronized void acknowledge(long position, int records) {
+        acknowledged = position;
+        unacknowledged -= records;
+        int index = segmentIndex(position);
+        segments.get(index).buffer.putLong(8, position);
+        for (int i = 0; i < index; i++) {
+            Segment segment = segments.remove(0);
+            try {
+                segment.channel.close();
+                Files.delete(segment.path);
+            } catch (IOException e) {
+                logger.error("An error occurred", e);
+            }
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return unacknowledged;
+    }
+
+    public synchronized long getAcknowledged() {
+        return acknowledged;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            for (Segment segment : segments) {
+                try {
+                    segment.buffer.force();
+                    segment.channel.close();
+                } catch (IOException e) {
+                    logger.error("An error occurred", e);
+                }
+            }
+        }
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            logger.error("An error occurred", e);
+        }
+    }
+}
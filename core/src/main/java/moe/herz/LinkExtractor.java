@@ -0,0 +1,34 @@
+package moe.herz;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Site-specific shortcut for describing a link, tried before the generic page title fetch.
+ */
+public interface LinkExtractor {
+
+    boolean matches(HttpUrl url);
+
+    /**
+     * @param client the fetcher's client, which only connects to addresses the filter allows
+     * @return the reply for the link, or null to fall back to the page title
+     */
+    String extract(HttpUrl url, OkHttpClient client) throws IOException;
+
+    /**
+     * True if the host is one of the domains or a subdomain of one.
+     */
+    static boolean hostMatches(HttpUrl url, List<String> domains) {
+        String host = url.host();
+        for (String domain : domains) {
+            if (host.equals(domain) || host.endsWith("." + domain)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
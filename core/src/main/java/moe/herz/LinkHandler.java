@@ -0,0 +1,14 @@
+package moe.herz;
+
+import org.pircbotx.hooks.types.GenericMessageEvent;
+
+/**
+ * Answers links a {@link BotPlugin} knows better than the page title.
+ */
+public interface LinkHandler {
+
+    /**
+     * @return true if the link is taken care of and its page title should not be fetched
+     */
+    boolean handle(GenericMessageEvent event, String url);
+}
@@ -0,0 +1,133 @@
+package moe.herz;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide metric registry rendered in the Prometheus text exposition format.
+ */
+public final class Metrics {
+    private static final double[] BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+    private static final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    private record Family(String help, String type, Map<String, Object> series) {
+    }
+
+    public static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BUCKETS.length];
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void observeNanos(long nanos) {
+            double seconds = nanos / 1e9;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                if (seconds <= BUCKETS[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sum.add(seconds);
+        }
+    }
+
+    /**
+     * @param labels alternating label names and values
+     */
+    public static Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) series(name, help, "histogram", labels, Histogram::new);
+    }
+
+    public static LongAdder counter(String name, String help, String... labels) {
+        return (LongAdder) series(name, help, "counter", labels, LongAdder::new);
+    }
+
+    /**
+     * @param labels alternating label names and values; registering the same ones again replaces the value
+     */
+    public static void gauge(String name, String help, LongSupplier value, String... labels) {
+        families.computeIfAbsent(name, n -> new Family(help, "gauge", new ConcurrentHashMap<>()))
+                .series().put(formatLabels(labels), value);
+    }
+
+    private static Object series(String name, String help, String type, String[] labels, Supplier<Object> factory) {
+        Family family = families.computeIfAbsent(name, n -> new Family(help, type, new ConcurrentHashMap<>()));
+        return family.series().computeIfAbsent(formatLabels(labels), l -> factory.get());
+    }
+
+    private static String formatLabels(String[] labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            String value = labels[i + 1] == null ? "" : labels[i + 1];
+            sb.append(labels[i]).append("=\"")
+                    .append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return sb.toString();
+    }
+
+    public static String scrape() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Family> entry : new TreeMap<>(families).entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help()).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type()).append('\n');
+
+            for (Map.Entry<String, Object> series : new TreeMap<>(family.series()).entrySet()) {
+                String labels = series.getKey();
+                Object value = series.getValue();
+                if (value instanceof Histogram histogram) {
+                    appendHistogram(out, name, labels, histogram);
+                } else if (value instanceof LongAdder counter) {
+                    appendSample(out, name, labels, counter.sum());
+                } else if (value instanceof LongSupplier gauge) {
+                    appendSample(out, name, labels, gauge.getAsLong());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static void appendHistogram(StringBuilder out, String name, String labels, Histogram histogram) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS.length; i++) {
+            cumulative += histogram.buckets[i].sum();
+            out.append(name).append("_bucket{").append(prefix).append("le=\"").append(BUCKETS[i]).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        long count = histogram.count.sum();
+        out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(count).append('\n');
+        appendSample(out, name + "_sum", labels, histogram.sum.sum());
+        appendSample(out, name + "_count", labels, count);
+    }
+
+    private static void appendSample(StringBuilder out, String name, String labels, Number value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+}
@@ -0,0 +1,307 @@
+package moe.herz;
+
+import java.util.regex.Pattern;
+import java.util.regex.Matcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pircbotx.MultiBotManager;
+import org.pircbotx.hooks.Event;
+import org.pircbotx.hooks.ListenerAdapter;
+import org.pircbotx.hooks.types.GenericMessageEvent;
+import org.pircbotx.hooks.events.MessageEvent;
+import org.pircbotx.User;
+import org.pircbotx.hooks.events.InviteEvent;
+import org.pircbotx.hooks.events.PrivateMessageEvent;
+import org.pircbotx.hooks.events.ConnectEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class Musicbot extends ListenerAdapter {
+    private final List<Command> commands = new ArrayList<>();
+    private final List<LinkHandler> linkHandlers = new ArrayList<>();
+    private final TellMessageHandler tellMessageHandler;
+    private final UrlMetadataFetcher urlMetadataFetcher;
+    private final HelpService helpService;
+    private final FlightRecorderControl flightRecorder;
+    private Set<String> ignoredUrls = new HashSet<>();
+    final String BOT_NAME;
+    private final String BOT_VERSION = "0.8.2 rev. 1";
+    private final String BOT_NICKSERV_PW;
+    private final String BOT_NICKSERV_EMAIL;
+    private final String BOT_ADMIN;
+    final String SERVER_NAME;
+    final int SERVER_PORT;
+    public String[] CHANNEL_NAMES;
+    final ReminderHandler reminderHandler;
+    private final Config config;
+    private final AtomicInteger eventsInFlight = new AtomicInteger();
+    private final long slowRequestThresholdMs;
+    private static final Logger logger = LoggerFactory.getLogger(Musicbot.class);
+
+    public Musicbot(List<BotPlugin> plugins, TellMessageHandler tellMessageHandler, UrlMetadataFetcher urlMetadataFetcher,
+                    ReminderHandler reminderHandler, FlightRecorderControl flightRecorder, NetworkConfig network, Config config) {
+        this.config = config;
+        this.tellMessageHandler = tellMessageHandler;
+        this.BOT_NAME = network.getBotName();
+        this.SERVER_NAME = network.getServerName();
+        this.SERVER_PORT = network.getServerPort();
+        this.CHANNEL_NAMES = network.getChannelNames();  // Populate from the network's settings
+        this.reminderHandler = reminderHandler;
+        this.urlMetadataFetcher = urlMetadataFetcher;
+        this.helpService = new HelpService();
+        for (BotPlugin plugin : plugins) {
+            for (Command command : plugin.getCommands()) {
+                commands.add(command);
+                helpService.addCommand(command.usage(), command.description());
+            }
+            linkHandlers.addAll(plugin.getLinkHandlers());
+        }
+        this.flightRecorder = flightRecorder;
+        this.slowRequestThresholdMs = config.getSlowRequestThresholdMs();
+        this.BOT_NICKSERV_PW = network.getNickservPw();
+        this.BOT_NICKSERV_EMAIL = network.getNickservEmail();
+        this.BOT_ADMIN = config.getBotAdmin();
+    }
+
+    public static void main(String[] args) throws IOException {
+        // See Prewarm for the AppCDS and CRaC modes
+        String mode = args.length > 0 ? args[0] : "";
+        if (mode.equals("--warmup")) {
+            Prewarm.run();
+            return;
+        }
+        if (mode.equals("--checkpoint")) {
+            Prewarm.checkpoint();
+        }
+
+        BotInitializer initializer = new BotInitializer();
+        MultiBotManager manager = initializer.initializeBots();
+
+        // Start the reminder sender thread
+        Thread reminderSenderThread = new Thread(initializer.newReminderSender());
+
+        reminderSenderThread.start();
+
+        // Every network gets its own connection thread; the services behind them are shared
+        manager.start();
+    }
+
+    @Override
+    public void onEvent(Event event) throws Exception {
+        // Counts events whose handling, including replies waiting on flood control, is still running
+        eventsInFlight.incrementAndGet();
+        Trace trace = Trace.begin(event.getClass().getSimpleName());
+        try {
+            super.onEvent(event);
+        } finally {
+            trace.end(slowRequestThresholdMs);
+            eventsInFlight.decrementAndGet();
+        }
+    }
+
+    int getEventsInFlight() {
+        return eventsInFlight.get();
+    }
+
+    @Override
+    public void onConnect(ConnectEvent event) {
+        boolean isRegistered = config.isBotRegistered(SERVER_NAME);
+
+        if (isRegistered) {
+            // Send identify command to NickServ
+            event.getBot().sendIRC().message("NickServ", "IDENTIFY " + BOT_NICKSERV_PW);
+        } else {
+            // Register with NickServ and save to the database
+            event.getBot().sendIRC().message("NickServ", "REGISTER " + BOT_NICKSERV_PW + " " + BOT_NICKSERV_EMAIL);
+            config.setBotRegistered(SERVER_NAME);
+        }
+    }
+
+    @Override
+    public void onGenericMessage(GenericMessageEvent event) {
+        // Ignore private/direct messages
+        if (event instanceof PrivateMessageEvent) {
+            return;
+        }
+
+        String message = event.getMessage();
+        User user = event.getUser();
+        String nick = user != null ? user.getNick() : "";
+        Pattern urlPattern = Pattern.compile("(https?://[\\w.-]+\\.[\\w.-]+[\\w./?=&#%\\-()@:]*)", Pattern.CASE_INSENSITIVE);
+        Matcher matcher = urlPattern.matcher(message);
+
+        Probe.command(commandName(message)).run(() -> dispatch(event, message, nick, matcher));
+    }
+
+    private void dispatch(GenericMessageEvent event, String message, String nick, Matcher matcher) {
+        if (message.startsWith(".help")) {
+            handleHelpCommand(event);
+        } else if (message.startsWith("!botcheck")){
+            respond(event, "Greetings from the depths, I'm " + BOT_NAME + ", your helpful water spirit! (Version " + BOT_VERSION + ")");
+        } else if (message.startsWith(".in ")) {
+            handleReminderCommand(event, message);
+        } else if (message.startsWith("!jfr")) {
+            if (nick != null && nick.equals(BOT_ADMIN)) {
+                handleFlightRecorderCommand(event, message);
+            } else {
+                respond(event, "You're not my master! Hmpf!");
+            }
+        } else if (message.startsWith("!reload")) {
+            if (nick != null && nick.equals(BOT_ADMIN)) {
+                loadIgnoredUrls("ignored_urls.txt");
+                respond(event, "Ignore list reloaded.");
+            } else {
+                respond(event, "You're not my master! Hmpf!");
+            }
+        } else {
+            Command command = findCommand(message);
+            if (command != null) {
+                command.handler().accept(event, message);
+            } else {
+                handleUrlFetching(event, matcher);
+            }
+        }
+    }
+
+    private String commandName(String message) {
+        if (message.startsWith(".help")) return "help";
+        if (message.startsWith("!botcheck")) return "botcheck";
+        if (message.startsWith(".in ")) return "in";
+        if (message.startsWith("!reload")) return "reload";
+        if (message.startsWith("!jfr")) return "jfr";
+        Command command = findCommand(message);
+        return command != null ? command.name() : "message";
+    }
+
+    private Command findCommand(String message) {
+        for (Command command : commands) {
+            if (message.startsWith(command.prefix())) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    private void respond(GenericMessageEvent event, String response) {
+        Replies.respond(event, response);
+    }
+
+    private void handleFlightRecorderCommand(GenericMessageEvent event, String message) {
+        String action = message.length() > 5 ? message.substring(5).trim() : "";
+        switch (action) {
+            case "start" -> respond(event, flightRecorder.start());
+            case "dump" -> respond(event, flightRecorder.dump());
+            case "stop" -> respond(event, flightRecorder.stop());
+            default -> respond(event, "Usage: !jfr start|dump|stop");
+        }
+    }
+
+    void loadIgnoredUrls(String filePath) {
+        try {
+            ignoredUrls = new HashSet<>(Files.readAllLines(Paths.get(filePath)));
+        } catch (IOException e) {
+            logger.error("An error occurred", e);
+        }
+    }
+
+    private void handleUrlFetching(GenericMessageEvent event, Matcher matcher) {
+        if (matcher.find()) {
+            String url = matcher.group(1);
+
+            boolean shouldIgnore = false;
+            for (String ignoredUrl : ignoredUrls) {
+                if (url.startsWith(ignoredUrl)) {
+                    shouldIgnore = true;
+                    break;
+                }
+            }
+            if (shouldIgnore) {
+                return;  // Exit the method if the URL should be ignored
+            }
+
+            for (LinkHandler linkHandler : linkHandlers) {
+                if (linkHandler.handle(event, url)) {
+                    return;
+                }
+            }
+
+            // Skip non-HTML files
+            String[] skippedExtensions = {".jpg", ".jpeg", ".png", ".gif", ".bmp", ".webp", ".webm", ".mp4", ".mp3", ".wav", ".ogg", ".flac", ".mkv", ".avi", ".flv"};
+            boolean skip = false;
+            for (String extension : skippedExtensions) {
+                if (url.toLowerCase().endsWith(extension)) {
+                    skip = true;
+                    break;
+                }
+            }
+
+            if (!skip) {
+                // Use the UrlMetadataFetcher class to get the metadata
+                String metadata = urlMetadataFetcher.fetchWebsiteMetadata(url);
+                respond(event, metadata);
+            }
+        }
+    }
+
+    @Override
+    public void onInvite(InviteEvent event) {
+        User user = event.getUser();
+        if (user != null && user.getNick() != null && user.getNick().equals(BOT_ADMIN)) {
+            String channelName = event.getChannel();
+            if (channelName != null) {
+                event.getBot().sendIRC().joinChannel(channelName);
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(MessageEvent event) {
+        User user = event.getUser();
+        if (user == null) {
+            return;
+        }
+        String messageText = event.getMessage();
+        String sender = user.getNick();
+        String currentChannel = event.getChannel().getName();
+        String currentServer = SERVER_NAME;
+
+        if (messageText.startsWith(".tell")) {
+            Probe.command("tell").run(() -> tellMessageHandler.handleTellMessage(sender, messageText, event, currentServer, currentChannel));
+        } else {
+            Probe.command("tell_delivery").run(() -> tellMessageHandler.handleRegularMessage(sender, event, currentServer, currentChannel));
+        }
+    }
+
+    private void handleReminderCommand(GenericMessageEvent event, String message) {
+        String sender = event.getUser().getNick();
+        if (event instanceof MessageEvent messageEvent) {
+            reminderHandler.processReminderRequest(sender, message, SERVER_NAME, messageEvent.getChannel().getName(), event);
+        } else if (event instanceof PrivateMessageEvent) {
+            // Handle the case for a private message
+            reminderHandler.processReminderRequest(sender, message, SERVER_NAME, sender, event);
+        }
+    }
+
+    private void handleHelpCommand(GenericMessageEvent event) {
+        User user = event.getUser();
+        if(user == null) {
+            return;
+        }
+
+        if (event instanceof MessageEvent messageEvent) {
+            messageEvent.getChannel().send().message("I will send you a list of all my commands per DM");
+            helpService.sendHelp(user, event.getBot());
+        } else if (event instanceof PrivateMessageEvent) {
+            helpService.sendHelp(user, event.getBot());
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package moe.herz;
+
+/**
+ * Connection settings of one IRC network the bot joins. Everything not tied to a network
+ * (API keys, caches, the database) stays in {@link Config} and is shared by all of them.
+ */
+public class NetworkConfig {
+    private final String id;
+    private final String botName;
+    private final String serverName;
+    private final int serverPort;
+    private final boolean serverSsl;
+    private final Long messageDelayMs;
+    private final String[] channelNames;
+    private final String nickservPw;
+    private final String nickservEmail;
+
+    NetworkConfig(String id, String botName, String serverName, int serverPort, boolean serverSsl, Long messageDelayMs,
+                  String[] channelNames, String nickservPw, String nickservEmail) {
+        this.id = id;
+        this.botName = botName;
+        this.serverName = serverName;
+        this.serverPort = serverPort;
+        this.serverSsl = serverSsl;
+        this.messageDelayMs = messageDelayMs;
+        this.channelNames = channelNames;
+        this.nickservPw = nickservPw;
+        this.nickservEmail = nickservEmail;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getBotName() {
+        return botName;
+    }
+
+    public String getServerName() {
+        return serverName;
+    }
+
+    public int getServerPort() {
+        return serverPort;
+    }
+
+    public boolean isServerSsl() {
+        return serverSsl;
+    }
+
+    public Long getMessageDelayMs() {
+        return messageDelayMs;
+    }
+
+    public String[] getChannelNames() {
+        return channelNames;
+    }
+
+    public String getNickservPw() {
+        return nickservPw;
+    }
+
+    public String getNickservEmail() {
+        return nickservEmail;
+    }
+}
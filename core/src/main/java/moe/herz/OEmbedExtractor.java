@@ -0,0 +1,100 @@
+package moe.herz;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Describes links through the site's oEmbed endpoint, a small JSON document with the title and
+ * author, instead of downloading the page.
+ */
+public class OEmbedExtractor implements LinkExtractor {
+    private final String provider;
+    private final HttpUrl endpoint;
+    private final List<String> domains;
+
+    record OEmbed(String title, String authorName, String html) {
+    }
+
+    public OEmbedExtractor(String provider, String endpoint, String... domains) {
+        this.provider = provider;
+        this.endpoint = HttpUrl.get(endpoint);
+        this.domains = List.of(domains);
+    }
+
+    @Override
+    public boolean matches(HttpUrl url) {
+        return LinkExtractor.hostMatches(url, domains);
+    }
+
+    @Override
+    public String extract(HttpUrl url, OkHttpClient client) throws IOException {
+        Request request = new Request.Builder()
+                .url(endpoint.newBuilder()
+                        .addQueryParameter("url", url.toString())
+                        .addQueryParameter("format", "json")
+                        .build())
+                .get()
+                .build();
+
+        OEmbed oEmbed;
+        try (Probe probe = Probe.upstream("oembed", endpoint.host());
+             Response response = client.newCall(request).execute()) {
+            probe.status(response.code());
+            if (response.code() != 200 || response.body() == null) {
+                return null;
+            }
+            oEmbed = read(response.body().charStream());
+        }
+        return format(oEmbed);
+    }
+
+    private String format(OEmbed oEmbed) {
+        String title = oEmbed.title();
+        if ((title == null || title.isBlank()) && oEmbed.html() != null) {
+            // Twitter/X has no title, the post text is in the embed markup
+            Element text = Jsoup.parseBodyFragment(oEmbed.html()).selectFirst("blockquote p");
+            title = text != null ? text.text() : null;
+        }
+        if (title == null || title.isBlank()) {
+            return null;
+        }
+
+        String author = oEmbed.authorName();
+        if (author != null && !author.isBlank() && !title.contains(author)) {
+            title += " by " + author;
+        }
+        return provider + " | " + title;
+    }
+
+    static OEmbed read(Reader json) throws IOException {
+        String title = null;
+        String authorName = null;
+        String html = null;
+        JsonReader reader = new JsonReader(json);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() != JsonToken.STRING) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "title" -> title = reader.nextString();
+                case "author_name" -> authorName = reader.nextString();
+                case "html" -> html = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        return new OEmbed(title, authorName, html);
+    }
+}
@@ -0,0 +1,97 @@
+package moe.herz;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Describes links from their OpenGraph tags, for sites without oEmbed. Only the document head is
+ * downloaded; the connection is dropped once {@code </head>} has been read.
+ */
+public class OpenGraphExtractor implements LinkExtractor {
+    private static final int MAX_HEAD_BYTES = 128 * 1024;
+    private static final byte[] HEAD_END = "</head".getBytes(StandardCharsets.US_ASCII);
+
+    private final String provider;
+    private final List<String> domains;
+
+    public OpenGraphExtractor(String provider, String... domains) {
+        this.provider = provider;
+        this.domains = List.of(domains);
+    }
+
+    @Override
+    public boolean matches(HttpUrl url) {
+        return LinkExtractor.hostMatches(url, domains);
+    }
+
+    @Override
+    public String extract(HttpUrl url, OkHttpClient client) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .get()
+                .build();
+
+        String head;
+        try (Probe probe = Probe.upstream("page", url.host());
+             Response response = client.newCall(request).execute()) {
+            probe.status(response.code());
+            ResponseBody body = response.body();
+            // Redirects and errors are left to the generic fetch
+            if (response.code() != 200 || body == null) {
+                return null;
+            }
+            MediaType contentType = body.contentType();
+            Charset charset = contentType != null ? contentType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+            head = new String(readHead(body.byteStream()), charset);
+        }
+
+        Document doc = Jsoup.parse(head, url.toString());
+        String title = meta(doc, "og:title");
+        return title != null ? provider + " | " + title : null;
+    }
+
+    private static String meta(Document doc, String property) {
+        Element element = doc.selectFirst("meta[property=" + property + "]");
+        if (element == null) {
+            return null;
+        }
+        String content = element.attr("content").trim();
+        return content.isEmpty() ? null : content;
+    }
+
+    static byte[] readHead(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        byte[] buffer = new byte[8192];
+        int matched = 0;  // bytes of "</head" matched so far, the marker may straddle two reads
+        int read;
+        while (out.size() < MAX_HEAD_BYTES && (read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            for (int i = 0; i < read; i++) {
+                int b = Character.toLowerCase(buffer[i] & 0xFF);
+                if (b == HEAD_END[matched]) {
+                    matched++;
+                    if (matched == HEAD_END.length) {
+                        return out.toByteArray();
+                    }
+                } else {
+                    matched = b == '<' ? 1 : 0;
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+}
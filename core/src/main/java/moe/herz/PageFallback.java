@@ -0,0 +1,20 @@
+package moe.herz;
+
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+
+import java.io.IOException;
+
+/**
+ * Reads the title of a page the plain fetch could not, e.g. through a full browser engine. Looked up
+ * through {@link java.util.ServiceLoader} the first time a fetch fails; without one those pages get
+ * no title.
+ */
+public interface PageFallback {
+
+    /**
+     * @param dns the fetcher's pinned resolver, which refuses hosts with addresses the filter denies;
+     *            every connection the fallback opens has to resolve through it
+     */
+    String fetchTitle(HttpUrl url, long budgetMs, Dns dns) throws IOException;
+}
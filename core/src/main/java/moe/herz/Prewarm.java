@@ -0,0 +1,88 @@
+package moe.herz;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.crac.Core;
+import org.jsoup.Jsoup;
+import org.ocpsoft.prettytime.PrettyTime;
+import org.pircbotx.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Date;
+import java.util.Locale;
+import java.util.ServiceLoader;
+
+/**
+ * Runs the bot's parsing and formatting paths, and those of the installed plugins, on canned input
+ * without any network or database, so their classes are loaded and the hot ones compiled before a
+ * snapshot is taken:
+ * <ul>
+ *     <li>{@code --warmup} warms up and exits. Run with {@code -XX:ArchiveClassesAtExit=musicbot.jsa}
+ *     to record an AppCDS archive, start with {@code -XX:SharedArchiveFile=musicbot.jsa} to use it.</li>
+ *     <li>{@code --checkpoint} warms up and takes a CRaC checkpoint before reading the configuration
+ *     or connecting. Run with {@code -XX:CRaCCheckpointTo=<dir>} on a CRaC JDK, start again with
+ *     {@code -XX:CRaCRestoreFrom=<dir>}; the restored bot carries on with a normal startup.</li>
+ * </ul>
+ */
+final class Prewarm {
+    private static final Logger logger = LoggerFactory.getLogger(Prewarm.class);
+    private static final int ROUNDS = 5000;
+
+    private static final String DEFINITIONS = "{\"list\":[{\"definition\":\"A word used for [warming up].\",\"thumbs_up\":12},"
+            + "{\"definition\":\"Another one.\",\"thumbs_up\":3}]}";
+    private static final String PAGE = "<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>Warm-up page</title></head>"
+            + "<body><p>Nothing to see here.</p></body></html>";
+    private static final String CHANGE = "{\"table\":\"tellnew\",\"op\":\"INSERT\",\"row\":{\"sender\":\"a\",\"recipient\":\"b\","
+            + "\"message\":\"hi\",\"timestamp\":\"2024-01-01T12:00:00.123\",\"server\":\"irc.example.net\",\"channel\":\"#music\"}}";
+
+    private Prewarm() {
+    }
+
+    static void run() throws IOException {
+        long start = System.nanoTime();
+        AddressFilter addressFilter = new AddressFilter();
+        InetAddress address = InetAddress.getByAddress(new byte[]{93, (byte) 184, (byte) 216, 34});
+        ChangeListener changeListener = new ChangeListener(null);
+        PrettyTime prettyTime = new PrettyTime(Locale.ENGLISH);
+        new OkHttpClient.Builder().build();
+        new Configuration.Builder()
+                .setName("Undine")
+                .addServer("irc.example.net", 6697)
+                .addAutoJoinChannel("#music")
+                .buildConfiguration();
+
+        for (int i = 0; i < ROUNDS; i++) {
+            Jsoup.parse(PAGE).title();
+            HttpUrl.get("https://example.com/watch?v=" + i);
+            addressFilter.isAllowed(address);
+            changeListener.dispatch(CHANGE);
+            IrcLinePacker.wrap(DEFINITIONS.repeat(4), IrcLinePacker.payloadBudget("Undine", "#music"));
+            TellMessageHandler.sanitizeMessage("did you hear the new album yet?\u0007");
+            ReminderHandler.parseDuration("1w2d3h4m5s");
+            prettyTime.format(new Date());
+        }
+        for (BotPlugin plugin : ServiceLoader.load(BotPlugin.class)) {
+            plugin.warmUp(ROUNDS);
+        }
+        logger.info("Warm-up took {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Warms up and takes the checkpoint. Returns once restored, or right away with a warning if the
+     * JDK cannot checkpoint.
+     */
+    static void checkpoint() throws IOException {
+        run();
+        try {
+            Core.checkpointRestore();
+            logger.info("Restored from checkpoint");
+        } catch (UnsupportedOperationException e) {
+            logger.warn("This JDK does not support CRaC, starting without a checkpoint");
+        } catch (Exception e) {
+            logger.error("Checkpoint failed, starting without one", e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package moe.herz;
+
+import jdk.jfr.Event;
+
+/**
+ * Times one unit of work and records it when closed: as a metric, as a Flight Recorder event and
+ * as a span of the current {@link Trace}. Meant for try-with-resources around a command dispatch,
+ * an upstream HTTP call, a single JDBC statement or an outgoing IRC message; where nothing is done
+ * with the probe itself, {@link #time} and {@link #run} wrap the work instead.
+ */
+public final class Probe implements AutoCloseable {
+    private enum Kind { COMMAND, UPSTREAM, QUERY, SEND }
+
+    @FunctionalInterface
+    public interface Work<T, E extends Exception> {
+        T get() throws E;
+    }
+
+    @FunctionalInterface
+    public interface Action<E extends Exception> {
+        void run() throws E;
+    }
+
+    private final Kind kind;
+    private final String name;
+    private final String host;
+    private final Event event;
+    private final Trace trace;
+    private final long start;
+    private int status;
+
+    private Probe(Kind kind, String name, String host, Event event) {
+        this.kind = kind;
+        this.name = name;
+        this.host = host;
+        this.event = event;
+        this.trace = Trace.current();
+        if (event != null) {
+            event.begin();
+        }
+        this.start = System.nanoTime();
+    }
+
+    public static Probe command(String command) {
+        return new Probe(Kind.COMMAND, command, null, new CommandEvent());
+    }
+
+    public static Probe upstream(String service, String host) {
+        return new Probe(Kind.UPSTREAM, service, host, new UpstreamCallEvent());
+    }
+
+    public static Probe query(String statement) {
+        return new Probe(Kind.QUERY, statement, null, new QueryEvent());
+    }
+
+    /**
+     * Covers an outgoing IRC message, which includes any wait imposed by PircBotX flood control.
+     *
+     * @param target names the feature sending, not the channel or nick, as it becomes a metric label
+     */
+    public static Probe send(String target) {
+        return new Probe(Kind.SEND, target, null, null);
+    }
+
+    /**
+     * Records the HTTP status of an upstream call. An upstream probe closed without a status
+     * counts as a failed request.
+     */
+    public void status(int status) {
+        this.status = status;
+    }
+
+    /**
+     * Times the work and closes the probe.
+     */
+    public <T, E extends Exception> T time(Work<T, E> work) throws E {
+        try {
+            return work.get();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Times the action and closes the probe.
+     */
+    public <E extends Exception> void run(Action<E> action) throws E {
+        try {
+            action.run();
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        long elapsed = System.nanoTime() - start;
+        if (event != null) {
+            event.end();
+        }
+        switch (kind) {
+            case COMMAND -> {
+                Metrics.histogram("musicbot_command_duration_seconds",
+                        "Time spent handling a bot command", "command", name).observeNanos(elapsed);
+                if (event.shouldCommit()) {
+                    ((CommandEvent) event).command = name;
+                    event.commit();
+                }
+            }
+            case QUERY -> {
+                Metrics.histogram("musicbot_db_query_duration_seconds",
+                        "Time spent executing a JDBC statement", "query", name).observeNanos(elapsed);
+                if (event.shouldCommit()) {
+                    ((QueryEvent) event).statement = name;
+                    event.commit();
+                }
+            }
+            case UPSTREAM -> {
+                Metrics.histogram("musicbot_upstream_request_duration_seconds",
+                        "Time spent waiting for an external API", "service", name).observeNanos(elapsed);
+                Metrics.counter("musicbot_upstream_responses_total",
+                        "External API responses by status code", "service", name,
+                        "status", status == 0 ? "none" : Integer.toString(status)).increment();
+                if (status == 0 || status >= 400) {
+                    Metrics.counter("musicbot_upstream_errors_total",
+                            "External API calls that failed or returned an error status", "service", name).increment();
+                }
+                if (event.shouldCommit()) {
+                    UpstreamCallEvent upstreamEvent = (UpstreamCallEvent) event;
+                    upstreamEvent.service = name;
+                    upstreamEvent.host = host;
+                    upstreamEvent.status = status;
+                    upstreamEvent.commit();
+                }
+            }
+            case SEND -> Metrics.histogram("musicbot_irc_send_duration_seconds",
+                    "Time spent handing a message to PircBotX, including flood-control waits").observeNanos(elapsed);
+        }
+
+        if (trace != null) {
+            String spanName = kind == Kind.UPSTREAM ? name + " " + host + " status=" + status : name;
+            trace.addSpan(kind.name().toLowerCase(), spanName, start, elapsed);
+        }
+    }
+}
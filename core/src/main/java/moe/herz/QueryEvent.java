@@ -0,0 +1,18 @@
+package moe.herz;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("moe.herz.Query")
+@Label("Database Statement")
+@Category("Musicbot")
+@Description("Execution of one JDBC statement")
+@StackTrace(false)
+class QueryEvent extends Event {
+    @Label("Statement")
+    String statement;
+}
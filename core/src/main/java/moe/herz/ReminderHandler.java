@@ -0,0 +1,316 @@
+package moe.herz;
+
+import org.pircbotx.hooks.types.GenericMessageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.Instant;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.time.Duration;
+import java.sql.Timestamp;
+import java.sql.ResultSet;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.sql.DataSource;
+import com.google.gson.JsonObject;
+
+public class ReminderHandler implements ChangeListener.Subscriber {
+    private static final Pattern DURATION_PATTERN = Pattern.compile("^\\.in\\s+((\\d+[wdhms])+)?\\s+(.*)$");
+    private static final Pattern DURATION_PART_PATTERN = Pattern.compile("(\\d+)([wdhms])");
+    private final PriorityBlockingQueue<Reminder> reminderQueue;
+    private final ConcurrentHashMap<Long, Reminder> reminders;
+    private final DataSource dataSource;
+    private final WriteBehind writes;
+    private final IdGenerator ids;
+    private final String nodeId;
+    private final int leaseSeconds;
+    private static final Logger logger = LoggerFactory.getLogger(ReminderHandler.class);
+
+    /**
+     * A due reminder and where it goes; {@code server} is null for reminders stored before the bot
+     * served more than one network.
+     */
+    public record Delivery(long id, String server, String channel, String message) {
+    }
+
+    /**
+     * @param nodeId       name this instance leases due reminders under
+     * @param leaseSeconds how long a claimed reminder stays with this instance before others may take it over
+     */
+    public ReminderHandler(DataSource dataSource, WriteBehind writes, IdGenerator ids, String nodeId, int leaseSeconds) {
+        this.dataSource = dataSource;
+        this.writes = writes;
+        this.ids = ids;
+        this.nodeId = nodeId;
+        this.leaseSeconds = leaseSeconds;
+        this.reminderQueue = new PriorityBlockingQueue<>();
+        this.reminders = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Loads the stored reminders. Runs while the bots are already connecting, so it merges into what
+     * was set in the meantime instead of replacing it; a local entry whose row is gone only costs
+     * one claim that finds nothing.
+     */
+    public void init() {
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+            ResultSet rs = Probe.query("reminder_load").time(() -> stmt.executeQuery("SELECT id, remind_at FROM UndineReminder"));
+            while (rs.next()) {
+                long id = rs.getLong(1);
+                Instant remindAt = rs.getTimestamp(2).toInstant();
+
+                Reminder reminder = new Reminder(id, remindAt);
+                if (reminders.putIfAbsent(id, reminder) == null) {
+                    reminderQueue.add(reminder);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("An error occurred", e);
+        }
+    }
+
+    @Override
+    public void applyChange(String operation, JsonObject row) {
+        long id = Long.parseLong(ChangeListener.text(row, "id"));
+        if (operation.equals("DELETE")) {
+            forget(id);
+        } else if (!reminders.containsKey(id)) {
+            Reminder reminder = new Reminder(id, ChangeListener.timestamp(row, "remind_at").toInstant());
+            if (reminders.putIfAbsent(id, reminder) == null) {
+                reminderQueue.add(reminder);
+            }
+        }
+    }
+
+    @Override
+    public void reload() {
+        init();
+    }
+
+    public void processReminderRequest(String sender, String message, String server, String channel, GenericMessageEvent event) {
+        Matcher matcher = DURATION_PATTERN.matcher(message);
+        if (matcher.matches()) {
+            String durationString = matcher.group(1);
+            String reminderMessage = matcher.group(3);
+
+            if (durationString == null || durationString.isEmpty()) {
+                event.getBot().sendIRC().message(channel, "Invalid duration format. Please specify a duration.");
+                return;
+            }
+
+            Duration duration;
+            try {
+                duration = parseDuration(durationString);
+            } catch (NumberFormatException e) {
+                event.getBot().sendIRC().message(channel, "The duration value is too large. Please enter a smaller value.");
+                return;
+            }
+
+            // Limit the duration to 1 year (365 days)
+            if (duration.toDays() > 365) {
+                event.getBot().sendIRC().message(channel, "Sorry, the maximum duration for a reminder is 1 year.");
+                return;
+            }
+
+            Instant remindAt = Instant.now().plus(duration);
+            if (!addReminder(sender, reminderMessage, remindAt, server, channel)) {
+                event.getBot().sendIRC().message(channel, "Sorry, I could not store the reminder. Please try again later.");
+                return;
+            }
+
+            String readableDuration = getReadableDuration(duration);
+            event.getBot().sendIRC().message(channel, "Okay, I will remind you in " + readableDuration + ".");
+        } else {
+            event.getBot().sendIRC().message(channel, "Invalid command format. Please use .in [duration][w|d|h|m|s] [message].");
+        }
+    }
+
+
+    static Duration parseDuration(String durationString) {
+        Duration duration = Duration.ZERO;
+        Matcher durationMatcher = DURATION_PART_PATTERN.matcher(durationString);
+        while (durationMatcher.find()) {
+            long durationValue = Long.parseLong(durationMatcher.group(1)); // Changed to long
+            String durationType = durationMatcher.group(2);
+
+            switch (durationType) {
+                case "w" -> duration = duration.plus(Duration.ofDays(durationValue * 7));
+                case "d" -> duration = duration.plus(Duration.ofDays(durationValue));
+                case "h" -> duration = duration.plus(Duration.ofHours(durationValue));
+                case "m" -> duration = duration.plus(Duration.ofMinutes(durationValue));
+                case "s" -> duration = duration.plus(Duration.ofSeconds(durationValue));
+            }
+        }
+        return duration;
+    }
+
+    public String getReadableDuration(Duration duration) {
+        long seconds = duration.getSeconds();
+        long days = seconds / (24 * 60 * 60);
+        seconds %= (24 * 60 * 60);
+        long hours = seconds / (60 * 60);
+        seconds %= (60 * 60);
+        long minutes = seconds / 60;
+        seconds %= 60;
+
+        StringBuilder readableDuration = new StringBuilder();
+
+        if(days > 0) {
+            readableDuration.append(days).append(" days ");
+        }
+        if(hours > 0) {
+            readableDuration.append(hours).append(" hours ");
+        }
+        if(minutes > 0) {
+            readableDuration.append(minutes).append(" minutes ");
+        }
+        if(seconds > 0 || readableDuration.length() == 0) {
+            readableDuration.append(seconds).append(" seconds");
+        }
+
+        return readableDuration.toString().trim();
+    }
+
+    /**
+     * Queues the reminder and its row. The row is written shortly after, so a reminder due within
+     * that time is sent on the next claim once it is there.
+     *
+     * @return false if the row could not be journaled, the reminder is then dropped
+     */
+    public boolean addReminder(String sender, String message, Instant remindAt, String server, String channel) {
+        long id = ids.next();
+        Reminder reminder = new Reminder(id, remindAt);
+        reminders.put(id, reminder);
+        reminderQueue.add(reminder);
+        boolean journaled = !writes.submit("reminder_insert", "INSERT INTO UndineReminder (id, sender, message, remind_at, server, channel) VALUES (?, ?, ?, ?, ?, ?) "
+                + "ON CONFLICT (id) DO NOTHING", id, sender, message, Timestamp.from(remindAt), server, channel).isCompletedExceptionally();
+        if (!journaled) {
+            forget(id);
+        }
+        return journaled;
+    }
+
+    public int getQueueSize() {
+        return reminderQueue.size();
+    }
+
+    public Reminder getNextReminder() {
+        return reminderQueue.peek();
+    }
+
+    public Instant getReminderTime(long reminderId) {
+        Reminder reminder = reminders.get(reminderId);
+        return (reminder != null) ? reminder.getTime() : null;
+    }
+
+    /**
+     * Leases up to {@code limit} due reminders for the given servers (and those stored without one)
+     * to this instance. Rows locked or leased by another instance are skipped, so every due reminder
+     * goes to exactly one instance; if that one dies before {@link #completeReminder}, the lease runs
+     * out and the next claim anywhere picks the reminder up again.
+     */
+    public List<Delivery> claimDueReminders(Collection<String> servers, int limit) {
+        List<Delivery> deliveries = new ArrayList<>();
+        String sql = "UPDATE UndineReminder SET lease_owner = ?, lease_until = now() + make_interval(secs => ?) "
+                + "WHERE id IN (SELECT id FROM UndineReminder WHERE remind_at <= now() "
+                + "AND (lease_until IS NULL OR lease_until < now()) AND (server IS NULL OR server = ANY(?)) "
+                + "ORDER BY remind_at LIMIT ? FOR UPDATE SKIP LOCKED) "
+                + "RETURNING id, sender, message, channel, server";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, nodeId);
+            pstmt.setInt(2, leaseSeconds);
+            pstmt.setArray(3, connection.createArrayOf("varchar", servers.toArray()));
+            pstmt.setInt(4, limit);
+            ResultSet rs = Probe.query("reminder_claim").time(pstmt::executeQuery);
+            while (rs.next()) {
+                deliveries.add(new Delivery(rs.getLong(1), rs.getString(5), rs.getString(4), rs.getString(2) + ": " + rs.getString(3)));
+            }
+        } catch (SQLException e) {
+            logger.error("An error occurred", e);
+        }
+        return deliveries;
+    }
+
+    /**
+     * Deletes a delivered reminder, as long as this instance still holds its lease. This is done
+     * right away rather than behind other writes: a delete still waiting when the lease runs out
+     * would let another instance claim the reminder and send it again. The delete is journaled as
+     * well, after the insert of the reminder, so an insert replayed from the journal after a crash
+     * cannot bring the reminder back.
+     */
+    public void completeReminder(long reminderId) {
+        forget(reminderId);
+        String sql = "DELETE FROM UndineReminder WHERE id = ? AND lease_owner = ? AND lease_until > now()";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setLong(1, reminderId);
+            pstmt.setString(2, nodeId);
+            int deleted = Probe.query("reminder_delete").time(pstmt::executeUpdate);
+            if (deleted == 0) {
+                logger.warn("Lease on reminder {} ran out before it was delivered, it may be sent again", reminderId);
+            }
+        } catch (SQLException e) {
+            logger.error("Could not complete reminder " + reminderId + ", it may be sent again once its lease runs out", e);
+        }
+        // A replayed insert leaves the row without a lease; one another instance holds is left to it
+        writes.submit("reminder_complete", "DELETE FROM UndineReminder WHERE id = ? "
+                + "AND (lease_owner IS NULL OR lease_owner = ?)", reminderId, nodeId);
+    }
+
+    /**
+     * Drops the local entries that are due. They were either claimed just now or are in another
+     * instance's hands; the database stays the record of what is left to send.
+     */
+    public void forgetDueReminders() {
+        Instant now = Instant.now();
+        Reminder next;
+        while ((next = reminderQueue.peek()) != null && !next.getTime().isAfter(now)) {
+            Reminder due = reminderQueue.poll();
+            if (due != null) {
+                reminders.remove(due.getId(), due);
+            }
+        }
+    }
+
+    private void forget(long reminderId) {
+        Reminder reminder = reminders.remove(reminderId);
+        if (reminder != null) {
+            reminderQueue.remove(reminder);
+        }
+    }
+
+    public void removeReminder(long reminderId) {
+        Reminder reminder = reminders.remove(reminderId);
+        if (reminder != null) {
+            boolean wasRemoved = reminderQueue.remove(reminder);
+            if (!wasRemoved) {
+                System.out.println("Reminder was not removed from the queue!");
+            }
+            // Leave rows alone that another instance is delivering right now
+            writes.submit("reminder_delete", "DELETE FROM UndineReminder WHERE id = ? "
+                    + "AND (lease_until IS NULL OR lease_until < now() OR lease_owner = ?)", reminderId, nodeId);
+        }
+    }
+
+    public void cleanupOldReminders() {
+        Instant now = Instant.now();
+        Set<Long> ids = new HashSet<>(this.reminders.keySet()); // Create a copy of the key set
+        for (Long id : ids) {
+            Instant reminderTime = this.getReminderTime(id);
+            if (reminderTime != null && reminderTime.isBefore(now)) {
+                this.removeReminder(id);
+            }
+        }
+    }
+}
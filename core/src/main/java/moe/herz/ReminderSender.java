@@ -0,0 +1,68 @@
+package moe.herz;
+
+import org.pircbotx.PircBotX;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers due reminders. The local queue only tells when to look; what gets sent is claimed from
+ * the database, so several instances can run side by side without sending anything twice. Every
+ * {@code pollSeconds} it also claims without a local hint, which picks up reminders set on other
+ * instances and those whose lease ran out.
+ */
+public class ReminderSender implements Runnable {
+    private static final int CLAIM_BATCH = 50;
+    private final ReminderHandler reminderHandler;
+    private final Map<String, PircBotX> botsByServer;
+    private final PircBotX defaultBot;
+    private final long pollNanos;
+    private static final Logger logger = LoggerFactory.getLogger(ReminderSender.class);
+
+    /**
+     * @param botsByServer the bot for each server name, in configuration order; the first one
+     *                     delivers reminders that were stored without a server
+     */
+    public ReminderSender(ReminderHandler reminderHandler, Map<String, PircBotX> botsByServer, int pollSeconds) {
+        this.reminderHandler = reminderHandler;
+        this.botsByServer = botsByServer;
+        this.defaultBot = botsByServer.values().iterator().next();
+        this.pollNanos = TimeUnit.SECONDS.toNanos(pollSeconds);
+    }
+
+    @Override
+    public void run() {
+        long lastClaim = System.nanoTime() - pollNanos;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Reminder nextReminder = reminderHandler.getNextReminder();
+                boolean due = nextReminder != null && nextReminder.getTime().isBefore(Instant.now());
+
+                if (due || System.nanoTime() - lastClaim >= pollNanos) {
+                    lastClaim = System.nanoTime();
+                    for (ReminderHandler.Delivery reminder : reminderHandler.claimDueReminders(botsByServer.keySet(), CLAIM_BATCH)) {
+                        deliver(reminder);
+                    }
+                    reminderHandler.forgetDueReminders();
+                }
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void deliver(ReminderHandler.Delivery reminder) {
+        PircBotX bot = reminder.server() != null ? botsByServer.get(reminder.server()) : defaultBot;
+        try {
+            bot.sendIRC().message(reminder.channel(), reminder.message());
+            reminderHandler.completeReminder(reminder.id());
+        } catch (RuntimeException e) {
+            // Left leased; once the lease runs out this or another instance tries again
+            logger.warn("Could not deliver reminder {}: {}", reminder.id(), e.getMessage());
+        }
+    }
+}
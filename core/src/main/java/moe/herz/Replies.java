@@ -0,0 +1,25 @@
+package moe.herz;
+
+import org.pircbotx.hooks.events.MessageEvent;
+import org.pircbotx.hooks.types.GenericMessageEvent;
+
+/**
+ * Answering helpers shared by the bot and the commands of its plugins.
+ */
+public final class Replies {
+
+    private Replies() {
+    }
+
+    public static void respond(GenericMessageEvent event, String response) {
+        Probe.send("reply").run(() -> event.respondWith(response));
+    }
+
+    // respondWith answers in the channel for channel messages and in a query otherwise
+    public static int budget(GenericMessageEvent event) {
+        String target = event instanceof MessageEvent messageEvent
+                ? messageEvent.getChannel().getName()
+                : event.getUser().getNick();
+        return IrcLinePacker.payloadBudget(event.getBot().getNick(), target);
+    }
+}
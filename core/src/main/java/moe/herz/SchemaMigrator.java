@@ -0,0 +1,160 @@
+package moe.herz;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Brings the database schema up to date at startup. Migrations are the scripts in
+ * {@code db/migration}, named {@code V<version>__<description>.sql}; each one runs once, in its
+ * own transaction, and is recorded in {@code schema_version}. An advisory lock keeps instances
+ * starting at the same time from running them twice.
+ */
+public class SchemaMigrator {
+    private static final String[] MIGRATIONS = {
+            "V1__tables.sql",
+            "V2__reminder_leases.sql",
+            "V3__keys_and_indexes.sql",
+            "V4__change_notifications.sql",
+            "V5__bigint_reminder_ids.sql",
+            "V6__drop_tell_recipient_index.sql"
+    };
+    // The queries run per message or per reminder, as the handlers send them, with sample values;
+    // tells and reminders are loaded whole at startup, so those loads are not among them
+    private static final String[] HOT_QUERIES = {
+            "DELETE FROM tellnew WHERE id = 1",
+            "UPDATE UndineReminder SET lease_owner = 'node', lease_until = now() + make_interval(secs => 60) "
+                    + "WHERE id IN (SELECT id FROM UndineReminder WHERE remind_at <= now() "
+                    + "AND (lease_until IS NULL OR lease_until < now()) AND (server IS NULL OR server = ANY('{irc.example.net}')) "
+                    + "ORDER BY remind_at LIMIT 50 FOR UPDATE SKIP LOCKED) "
+                    + "RETURNING id, sender, message, channel, server",
+            "DELETE FROM UndineReminder WHERE id = 1 AND lease_owner = 'node' AND lease_until > now()",
+            "DELETE FROM UndineReminder WHERE id = 1 AND (lease_owner IS NULL OR lease_owner = 'node')",
+            "DELETE FROM UndineReminder WHERE id = 1 AND (lease_until IS NULL OR lease_until < now() OR lease_owner = 'node')",
+            "SELECT lastfm_username FROM lastfmnames WHERE username = 'nick'",
+            "SELECT is_registered FROM nickserv_registration WHERE server_name = 'irc.example.net'"
+    };
+    private static final long LOCK_KEY = 0x6d75736963626f74L; // "musicbot"
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private final DataSource dataSource;
+
+    public SchemaMigrator(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public void migrate() {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                logger.warn("The database is not PostgreSQL, leaving its schema alone");
+                return;
+            }
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("SELECT pg_advisory_lock(" + LOCK_KEY + ")");
+            }
+            try {
+                applyMigrations(connection);
+            } finally {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+                }
+            }
+        } catch (SQLException | IOException e) {
+            logger.error("An error occurred", e);
+        }
+    }
+
+    private void applyMigrations(Connection connection) throws SQLException, IOException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (version INT PRIMARY KEY, "
+                    + "description VARCHAR(255) NOT NULL, installed_at TIMESTAMP NOT NULL DEFAULT now())");
+        }
+
+        Set<Integer> applied = new HashSet<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM schema_version")) {
+            while (rs.next()) {
+                applied.add(rs.getInt("version"));
+            }
+        }
+
+        for (String migration : MIGRATIONS) {
+            int separator = migration.indexOf("__");
+            int version = Integer.parseInt(migration.substring(1, separator));
+            if (applied.contains(version)) {
+                continue;
+            }
+            String description = migration.substring(separator + 2, migration.length() - ".sql".length()).replace('_', ' ');
+
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement();
+                 PreparedStatement record = connection.prepareStatement("INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                stmt.execute(read(migration));
+                record.setInt(1, version);
+                record.setString(2, description);
+                record.executeUpdate();
+                connection.commit();
+                logger.info("Migrated the schema to version {}: {}", version, description);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static String read(String migration) throws IOException {
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream("/db/migration/" + migration)) {
+            if (in == null) {
+                throw new IOException("Missing migration " + migration);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Warns about hot queries that cannot use an index. Sequential scans are priced out of reach
+     * first, since on the small tables of a fresh install the planner would rightly prefer them.
+     */
+    public void checkQueryPlans() {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                return;
+            }
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("SET LOCAL enable_seqscan = off");
+                for (String query : HOT_QUERIES) {
+                    StringJoiner plan = new StringJoiner("\n");
+                    try (ResultSet rs = stmt.executeQuery("EXPLAIN " + query)) {
+                        while (rs.next()) {
+                            plan.add(rs.getString(1));
+                        }
+                    }
+                    if (plan.toString().contains("Seq Scan")) {
+                        logger.warn("Query falls back to a sequential scan, an index is missing: {}\n{}", query, plan);
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("An error occurred", e);
+        }
+    }
+}
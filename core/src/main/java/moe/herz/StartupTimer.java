@@ -0,0 +1,85 @@
+package moe.herz;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs independent startup phases side by side and logs how long each one took, plus when the
+ * milestones were reached, once all of them are done.
+ */
+final class StartupTimer {
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimer.class);
+
+    private final long start = System.nanoTime();
+    private final List<String> timings = new ArrayList<>();
+    private final List<CompletableFuture<?>> phases = new ArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "startup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    <T> CompletableFuture<T> async(String phase, Callable<T> work) {
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> time(phase, work), executor);
+        synchronized (this) {
+            phases.add(future);
+        }
+        return future;
+    }
+
+    CompletableFuture<Void> async(String phase, Runnable work) {
+        return async(phase, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    <T> T time(String phase, Callable<T> work) {
+        long phaseStart = System.nanoTime();
+        try {
+            return work.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            record(phase + " " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - phaseStart) + " ms");
+        }
+    }
+
+    void milestone(String name) {
+        record(name + " after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    private synchronized void record(String timing) {
+        timings.add(timing);
+    }
+
+    /**
+     * Logs the breakdown once every phase started so far has finished.
+     */
+    void logWhenDone() {
+        CompletableFuture<?>[] started;
+        synchronized (this) {
+            started = phases.toArray(new CompletableFuture<?>[0]);
+        }
+        CompletableFuture.allOf(started).whenComplete((result, error) -> {
+            StringJoiner breakdown = new StringJoiner(", ");
+            synchronized (this) {
+                timings.forEach(breakdown::add);
+            }
+            logger.info("Startup finished in {} ms: {}", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), breakdown);
+            executor.shutdown();
+        });
+    }
+}
@@ -0,0 +1,310 @@
+package moe.herz;
+
+import org.ocpsoft.prettytime.PrettyTime;
+import org.pircbotx.hooks.types.GenericMessageEvent;
+import org.pircbotx.hooks.events.MessageEvent;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TellMessageHandler implements ChangeListener.Subscriber {
+    private static final int MAX_MESSAGES_PER_USER = 10;
+    private static final int MAX_MESSAGES_TO_SINGLE_USER = 5;
+    private static final int MAX_MESSAGES_IN_CHANNEL = 3;
+    // How long a tombstone outlives the delete, for loads that read the row before it went
+    private static final long TOMBSTONE_GRACE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long PENDING = Long.MAX_VALUE;
+    private static final Logger logger = LoggerFactory.getLogger(TellMessageHandler.class);
+
+
+    private final DataSource db;
+    private final WriteBehind writes;
+    private final IdGenerator ids;
+    // Pending tells by lower-cased recipient, so a line in a channel only looks at its speaker's tells
+    private volatile Map<String, List<Message>> messagesByRecipient;
+    // Ids of delivered tells, so that neither a late insert notification nor a load that read the row
+    // earlier brings them back. The value is when the tombstone may go, in System.nanoTime(), counted
+    // from the delete's notification or its commit; PENDING until either happened
+    private final Map<Long, Long> deleting = new ConcurrentHashMap<>();
+    private final PrettyTime pTime;
+
+    public TellMessageHandler(DataSource db, WriteBehind writes, IdGenerator ids) {
+        this.db = db;
+        this.writes = writes;
+        this.ids = ids;
+        this.pTime = new PrettyTime(Locale.ENGLISH);  // Set the locale to English
+        this.messagesByRecipient = new ConcurrentHashMap<>();
+    }
+
+    private record Message(long id, String sender, String recipient, String message, Timestamp timestamp, String server, String channel) {
+    }
+
+    static String sanitizeMessage(String originalMessage) {
+        return originalMessage
+                .replaceAll("[\\x00-\\x1F\\x7F]", "")  // Removes control characters
+                .replaceAll("[\\x80-\\x9F]", "")  // Removes control characters in extended set
+                .trim();  // Removes leading and trailing whitespace
+    }
+
+    private Map<String, List<Message>> loadMessagesFromDatabase() throws SQLException {
+        Map<String, List<Message>> messages = new ConcurrentHashMap<>();
+        String sql = "SELECT id, sender, recipient, message, timestamp, server, channel FROM tellnew";
+        try (Connection connection = db.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            ResultSet rs = Probe.query("tell_load").time(statement::executeQuery);
+            while (rs.next()) {
+                Message message = new Message(
+                        rs.getLong("id"),
+                        rs.getString("sender"),
+                        rs.getString("recipient"),
+                        rs.getString("message"),
+                        rs.getTimestamp("timestamp"),
+                        rs.getString("server"),
+                        rs.getString("channel")
+                );
+                messages.computeIfAbsent(key(message.recipient()), k -> new ArrayList<>()).add(message);
+            }
+        }
+        return messages;
+    }
+
+    private static String key(String nick) {
+        return nick.toLowerCase(Locale.ROOT);
+    }
+
+    private boolean isDeleted(long id) {
+        Long until = deleting.get(id);
+        if (until == null) {
+            return false;
+        }
+        if (until == PENDING || until - System.nanoTime() > 0) {
+            return true;
+        }
+        deleting.remove(id, until);
+        return false;
+    }
+
+    private void tombstone(long id, long until) {
+        long now = System.nanoTime();
+        deleting.values().removeIf(expiry -> expiry != PENDING && expiry - now <= 0);
+        deleting.put(id, until);
+    }
+
+    private void addMessage(Message message) {
+        if (isDeleted(message.id())) {
+            return;
+        }
+        messagesByRecipient.compute(key(message.recipient()), (k, messages) -> {
+            List<Message> updated = messages != null ? messages : new ArrayList<>();
+            if (updated.stream().noneMatch(m -> m.id() == message.id())) {
+                updated.add(message);
+            }
+            return updated;
+        });
+    }
+
+    // By id: a row from the change feed need not render its timestamp or text like the cached tell
+    private void removeMessage(Message message) {
+        messagesByRecipient.computeIfPresent(key(message.recipient()), (k, messages) -> {
+            messages.removeIf(m -> m.id() == message.id());
+            return messages.isEmpty() ? null : messages;
+        });
+    }
+
+    @Override
+    public void applyChange(String operation, JsonObject row) {
+        Message message = new Message(
+                Long.parseLong(ChangeListener.text(row, "id")),
+                ChangeListener.text(row, "sender"),
+                ChangeListener.text(row, "recipient"),
+                ChangeListener.text(row, "message"),
+                ChangeListener.timestamp(row, "timestamp"),
+                ChangeListener.text(row, "server"),
+                ChangeListener.text(row, "channel")
+        );
+        if (operation.equals("DELETE")) {
+            tombstone(message.id(), System.nanoTime() + TOMBSTONE_GRACE_NANOS);
+            removeMessage(message);
+        } else {
+            addMessage(message);
+        }
+    }
+
+    /**
+     * Loads the stored tells. Runs while the bot is already connecting, so it merges into what
+     * was told in the meantime instead of replacing it.
+     */
+    public void loadPending() {
+        try {
+            for (List<Message> messages : loadMessagesFromDatabase().values()) {
+                messages.forEach(this::addMessage);
+            }
+        } catch (SQLException e) {
+            logger.error("An error occurred", e);
+        }
+    }
+
+    @Override
+    public void reload() {
+        try {
+            Map<String, List<Message>> messages = loadMessagesFromDatabase();
+            messages.values().forEach(pending -> pending.removeIf(message -> isDeleted(message.id())));
+            messages.values().removeIf(List::isEmpty);
+            messagesByRecipient = messages;
+        } catch (SQLException e) {
+            logger.error("An error occurred", e);
+        }
+    }
+
+    public int getPendingCount() {
+        int count = 0;
+        for (List<Message> messages : messagesByRecipient.values()) {
+            count += messages.size();
+        }
+        return count;
+    }
+
+    public void handleTellMessage(String sender, String messageText, GenericMessageEvent event, String server, String channel) {
+        String[] parts = messageText.split(" ", 3);
+        if (parts.length < 3) {
+            event.respond("Invalid .tell command. Usage: .tell <nick> <message>");
+            return;
+        }
+
+        String recipient = parts[1];
+        String message = parts[2];
+
+        // Sanitize the message
+        String sanitizedMessage = sanitizeMessage(message);
+
+        // Check if the sanitized message is empty
+        if (sanitizedMessage.isEmpty()) {
+            event.respond("Why are you trying to send an empty message? Baka!");
+            return;
+        }
+
+        if (recipient.equalsIgnoreCase(sender)) {
+            event.respond("Aww, talking to yourself? How pitiful...");
+        } else if (recipient.equalsIgnoreCase(event.getBot().getNick())) {
+            event.respond("I am right here, baka!");
+        } else {
+            // Checks and responses for exceeded limits
+            if (countPending(recipient, null) >= MAX_MESSAGES_PER_USER) {
+                event.respond("This user has too many messages to receive.");
+                return;
+            } else if (countPending(recipient, sender) >= MAX_MESSAGES_TO_SINGLE_USER) {
+                event.respond("You have too many pending messages for this user.");
+                return;
+            }
+
+            // Save to memory, the row follows
+            long id = ids.next();
+            Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+            Message pending = new Message(id, sender, recipient, sanitizedMessage, timestamp, server, channel);  // Note the use of sanitizedMessage
+            addMessage(pending);
+            if (!saveMessageToDatabase(id, sender, recipient, sanitizedMessage, timestamp, server, channel)) {
+                removeMessage(pending);
+                event.respond("Sorry, I could not store your message. Please try again later.");
+                return;
+            }
+            if (event instanceof MessageEvent messageEvent) {
+                event.getBot().sendIRC().message(messageEvent.getChannel().getName(), "Your message will be delivered the next time " + recipient + " is here!");
+            } else {
+                event.respond("Your message will be delivered the next time " + recipient + " is here!");
+            }
+        }
+    }
+
+    public void handleRegularMessage(String sender, GenericMessageEvent event, String currentServer, String currentChannel) {
+        List<Message> userMessages = new ArrayList<>();
+        messagesByRecipient.computeIfPresent(key(sender), (k, messages) -> {
+            Iterator<Message> iter = messages.iterator();
+            while (iter.hasNext()) {
+                Message message = iter.next();
+                if (message.server().equals(currentServer) && message.channel().equals(currentChannel)) {
+                    userMessages.add(message);
+                    iter.remove();
+                }
+            }
+            return messages.isEmpty() ? null : messages;
+        });
+
+        if (!userMessages.isEmpty()) {
+            if (event instanceof MessageEvent messageEvent) {
+                event.getBot().sendIRC().message(messageEvent.getChannel().getName(), sender + ", you have postponed messages:");
+            } else {
+                event.respond(sender + ", you have postponed messages:");
+            }
+            sendMessagesToUser(sender, userMessages, event);
+        }
+    }
+
+    private void sendMessagesToUser(String recipient, List<Message> messages, GenericMessageEvent event) {
+        // The first few tells go to the channel the user spoke in, the rest by DM
+        List<Message> inChannel = messages;
+        List<Message> viaDm = List.of();
+        if (event instanceof MessageEvent messageEvent) {
+            if (messages.size() > MAX_MESSAGES_IN_CHANNEL) {
+                inChannel = messages.subList(0, MAX_MESSAGES_IN_CHANNEL);
+                viaDm = messages.subList(MAX_MESSAGES_IN_CHANNEL, messages.size());
+            }
+            deliver(event, messageEvent.getChannel().getName(), inChannel);
+        } else {
+            deliver(event, recipient, inChannel);
+        }
+
+        if (!viaDm.isEmpty()) {
+            deliver(event, recipient, viaDm);
+            MessageEvent messageEvent = (MessageEvent) event;
+            event.getBot().sendIRC().message(messageEvent.getChannel().getName(), "The remaining messages were sent via DM");
+        }
+    }
+
+    // Packs the tells into as few lines as fit and deletes them once their lines went out
+    private void deliver(GenericMessageEvent event, String target, List<Message> messages) {
+        IrcLinePacker packer = IrcLinePacker.forTarget(event.getBot().getNick(), target, " | ");
+        for (Message message : messages) {
+            packer.add(message.sender() + " (" + pTime.format(message.timestamp()) + "): " + message.message());
+        }
+        for (String line : packer.lines()) {
+            Probe.send("tell").run(() -> event.getBot().sendIRC().message(target, line));
+        }
+        for (Message message : messages) {
+            deleteMessageFromDatabase(message);
+        }
+    }
+
+    // The pending tells are all in memory, kept current with other instances by the change feed
+    private int countPending(String recipient, String sender) {
+        int[] count = new int[1];
+        messagesByRecipient.computeIfPresent(key(recipient), (k, messages) -> {
+            for (Message message : messages) {
+                if (sender == null || message.sender().equalsIgnoreCase(sender)) {
+                    count[0]++;
+                }
+            }
+            return messages;
+        });
+        return count[0];
+    }
+
+    // False if the tell could not be journaled and is lost
+    private boolean saveMessageToDatabase(long id, String sender, String recipient, String message, Timestamp timestamp, String server, String channel) {
+        // The id keeps a replay from the journal from storing the tell twice
+        return !writes.submit("tell_insert", "INSERT INTO tellnew (id, sender, recipient, message, timestamp, server, channel) VALUES (?, ?, ?, ?, ?, ?, ?) "
+                + "ON CONFLICT (id) DO NOTHING", id, sender, recipient, message, timestamp, server, channel)
+                .isCompletedExceptionally();
+    }
+
+    private void deleteMessageFromDatabase(Message message) {
+        tombstone(message.id(), PENDING);
+        // For when the notification does not come, e.g. because another instance deleted the row first
+        writes.submit("tell_delete", "DELETE FROM tellnew WHERE id = ?", message.id())
+                .whenComplete((result, error) -> deleting.replace(message.id(), PENDING, System.nanoTime() + TOMBSTONE_GRACE_NANOS));
+    }
+}
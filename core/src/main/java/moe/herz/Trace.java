@@ -0,0 +1,114 @@
+package moe.herz;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Correlation context for one inbound IRC event. The trace is bound to the listener thread (and
+ * to the logging MDC as {@code traceId}) while the event is handled, every {@link Probe} closed
+ * under it adds a span, and requests slower than the configured threshold are logged with their
+ * full span breakdown.
+ */
+public final class Trace {
+    private static final Logger logger = LoggerFactory.getLogger(Trace.class);
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    private final String id;
+    private final String origin;
+    private final long start;
+    private final List<Span> spans = new ArrayList<>();
+
+    private record Span(String kind, String name, long startNanos, long durationNanos) {
+    }
+
+    private Trace(String origin) {
+        this.id = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+        this.origin = origin;
+        this.start = System.nanoTime();
+    }
+
+    public static Trace begin(String origin) {
+        Trace trace = new Trace(origin);
+        CURRENT.set(trace);
+        MDC.put("traceId", trace.id);
+        return trace;
+    }
+
+    public static Trace current() {
+        return CURRENT.get();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Runs work on another thread under this trace, so probes there still land in it.
+     */
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return () -> {
+            Trace previous = CURRENT.get();
+            CURRENT.set(this);
+            MDC.put("traceId", id);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    void addSpan(String kind, String name, long startNanos, long durationNanos) {
+        synchronized (spans) {
+            spans.add(new Span(kind, name, startNanos, durationNanos));
+        }
+    }
+
+    public void end(long slowThresholdMs) {
+        long elapsed = System.nanoTime() - start;
+        restore(null);
+
+        if (slowThresholdMs > 0 && elapsed >= slowThresholdMs * 1_000_000L) {
+            logger.warn(formatBreakdown(elapsed));
+        }
+    }
+
+    private String formatBreakdown(long elapsed) {
+        List<Span> sorted;
+        synchronized (spans) {
+            sorted = new ArrayList<>(spans);
+        }
+        sorted.sort(Comparator.comparingLong(Span::startNanos));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Slow request trace=").append(id).append(" (").append(origin).append(") took ")
+                .append(elapsed / 1_000_000).append(" ms");
+        long accounted = 0;
+        for (Span span : sorted) {
+            sb.append(String.format("%n  +%6d ms %7d ms  %-8s %s", (span.startNanos() - start) / 1_000_000,
+                    span.durationNanos() / 1_000_000, span.kind(), span.name()));
+            if (!span.kind().equals("command")) {
+                accounted += span.durationNanos();
+            }
+        }
+        sb.append(String.format("%n  %d ms spent outside upstream, database and send spans", Math.max(0, elapsed - accounted) / 1_000_000));
+        return sb.toString();
+    }
+
+    private static void restore(Trace previous) {
+        if (previous == null) {
+            CURRENT.remove();
+            MDC.remove("traceId");
+        } else {
+            CURRENT.set(previous);
+            MDC.put("traceId", previous.id);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package moe.herz;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("moe.herz.UpstreamCall")
+@Label("Upstream Call")
+@Category("Musicbot")
+@Description("One HTTP request to an external API or web page")
+@StackTrace(false)
+class UpstreamCallEvent extends Event {
+    @Label("Service")
+    String service;
+
+    @Label("Host")
+    String host;
+
+    @Label("Status")
+    @Description("HTTP status code, 0 if the request failed without a response")
+    int status;
+}
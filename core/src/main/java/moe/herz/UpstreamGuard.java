@@ -0,0 +1,138 @@
+package moe.herz;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency budget, circuit breaker and optional request hedging for one external dependency.
+ * Configured through {@code upstream.<name>.budgetMs}, {@code .hedgeMs}, {@code .failureThreshold}
+ * and {@code .openMs}.
+ */
+public class UpstreamGuard {
+    private static final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "upstream-call");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final long budgetMs;
+    private final long hedgeMs;
+    private final CircuitBreaker breaker;
+
+    public UpstreamGuard(String name, Config config, long defaultBudgetMs) {
+        this.name = name;
+        this.budgetMs = config.getUpstreamSetting(name, "budgetMs", defaultBudgetMs);
+        this.hedgeMs = config.getUpstreamSetting(name, "hedgeMs", 0);
+        this.breaker = new CircuitBreaker(name,
+                (int) config.getUpstreamSetting(name, "failureThreshold", 5),
+                config.getUpstreamSetting(name, "openMs", 30000));
+        Metrics.gauge("musicbot_upstream_circuit_open", "1 while the circuit breaker for the service refuses calls",
+                () -> breaker.getState() == CircuitBreaker.State.OPEN ? 1 : 0, "service", name);
+    }
+
+    public long getBudgetMs() {
+        return budgetMs;
+    }
+
+    /**
+     * Runs an idempotent request within the budget. If hedging is enabled and the first attempt has
+     * not answered after {@code hedgeMs}, a second identical attempt is started and whichever
+     * succeeds first wins; a first attempt that fails before then is left to the hedge. Exceptions
+     * thrown by the request count as failures for the breaker, except an {@link UpstreamRequestException},
+     * which means the upstream answered. Each attempt calls {@code request}
+     * on its own thread, so it has to build whatever request object it needs itself.
+     */
+    public <T> T call(Callable<T> request) throws IOException {
+        if (!breaker.allowRequest()) {
+            Metrics.counter("musicbot_upstream_rejected_total",
+                    "Calls refused because the circuit breaker was open", "service", name).increment();
+            throw new UpstreamUnavailableException(name + " is unavailable (circuit open)");
+        }
+
+        Trace trace = Trace.current();
+        Callable<T> attempt = trace != null ? trace.wrap(request) : request;
+        CompletableFuture<T> result = new CompletableFuture<>();
+        boolean hedged = hedgeMs > 0 && hedgeMs < budgetMs;
+        // Counts the hedge from the start, so a first attempt failing early leaves the hedge its chance
+        AtomicInteger attemptsLeft = new AtomicInteger(hedged ? 2 : 1);
+        List<Future<?>> attempts = new ArrayList<>(2);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        boolean settled = false;
+
+        try {
+            attempts.add(submit(attempt, result, attemptsLeft));
+            if (hedged) {
+                try {
+                    T value = result.get(hedgeMs, TimeUnit.MILLISECONDS);
+                    settled = true;
+                    breaker.onSuccess();
+                    return value;
+                } catch (TimeoutException e) {
+                    attempts.add(submit(attempt, result, attemptsLeft));
+                    Metrics.counter("musicbot_upstream_hedged_total",
+                            "Requests that were hedged with a second attempt", "service", name).increment();
+                }
+            }
+            T value = result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            settled = true;
+            breaker.onSuccess();
+            return value;
+        } catch (TimeoutException e) {
+            settled = true;
+            breaker.onFailure();
+            Metrics.counter("musicbot_upstream_timeouts_total",
+                    "Calls that ran out of their latency budget", "service", name).increment();
+            throw new UpstreamUnavailableException(name + " did not answer within " + budgetMs + " ms");
+        } catch (ExecutionException e) {
+            settled = true;
+            Throwable cause = e.getCause();
+            if (cause instanceof UpstreamRequestException refused) {
+                breaker.onSuccess();
+                throw refused;
+            }
+            breaker.onFailure();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(name + " request failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(name + " request interrupted");
+        } finally {
+            if (!settled) {
+                breaker.release();
+            }
+            for (Future<?> future : attempts) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private <T> Future<?> submit(Callable<T> attempt, CompletableFuture<T> result, AtomicInteger attemptsLeft) {
+        return executor.submit(() -> {
+            try {
+                result.complete(attempt.call());
+            } catch (Throwable t) {
+                // Only fail the call once every attempt has failed
+                if (attemptsLeft.decrementAndGet() == 0) {
+                    result.completeExceptionally(t);
+                }
+            }
+        });
+    }
+}
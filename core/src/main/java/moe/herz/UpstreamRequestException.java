@@ -0,0 +1,16 @@
+package moe.herz;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an upstream answered but refused the request itself, e.g. with a 4xx for an unknown
+ * user. The message is meant for the user; the upstream is working, so this does not count against
+ * its circuit breaker.
+ */
+public class UpstreamRequestException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public UpstreamRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package moe.herz;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of waiting on an upstream that is known to be unhealthy or that used up its
+ * latency budget.
+ */
+public class UpstreamUnavailableException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+}
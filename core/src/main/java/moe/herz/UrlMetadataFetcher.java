@@ -0,0 +1,281 @@
+package moe.herz;
+
+import okhttp3.Call;
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class UrlMetadataFetcher {
+    private static final Logger logger = LoggerFactory.getLogger(UrlMetadataFetcher.class);
+    private static final List<String> ALLOWED_SCHEMES = Arrays.asList("http", "https");
+
+    private final HostResolver hostResolver;
+    private final AddressFilter addressFilter;
+    private final Dns pinnedDns = new PinnedDns();
+    private final OkHttpClient httpClient;
+    private final long budgetMs;
+    private final int maxRedirects;
+    private final HostScheduler hostScheduler;
+    private final SingleFlight<String, String> pageFlight = new SingleFlight<>("page");
+    private final List<LinkExtractor> extractors = new CopyOnWriteArrayList<>(defaultExtractors());
+    private volatile Optional<PageFallback> pageFallback;
+
+    public UrlMetadataFetcher(Config config) {
+        // Pages are arbitrary hosts, so they only get a latency budget and no shared circuit breaker
+        this(new HostResolver(config), AddressFilter.fromConfig(config),
+                config.getUpstreamSetting("page", "budgetMs", 6000), config.getFetchMaxRedirects(),
+                new HostScheduler(config.getFetchMaxPerHost(), config.getFetchMinSpacingMs()));
+    }
+
+    UrlMetadataFetcher(HostResolver hostResolver, AddressFilter addressFilter, long budgetMs, int maxRedirects,
+                       HostScheduler hostScheduler) {
+        this.hostResolver = hostResolver;
+        this.addressFilter = addressFilter;
+        this.budgetMs = budgetMs;
+        this.maxRedirects = maxRedirects;
+        this.hostScheduler = hostScheduler;
+        this.httpClient = new OkHttpClient.Builder()
+                .dns(pinnedDns)
+                .connectTimeout(5, TimeUnit.SECONDS)  // 5 seconds
+                .readTimeout(5, TimeUnit.SECONDS)  // 5 seconds
+                .callTimeout(budgetMs, TimeUnit.MILLISECONDS)
+                .followRedirects(false)  // Redirects are followed by hand, see redirectTarget
+                .followSslRedirects(false)
+                .build();
+    }
+
+    static List<LinkExtractor> defaultExtractors() {
+        return List.of(
+                new OEmbedExtractor("SoundCloud", "https://soundcloud.com/oembed", "soundcloud.com"),
+                new OEmbedExtractor("Spotify", "https://open.spotify.com/oembed", "open.spotify.com"),
+                new OEmbedExtractor("Vimeo", "https://vimeo.com/api/oembed.json", "vimeo.com"),
+                new OEmbedExtractor("Twitter", "https://publish.twitter.com/oembed", "twitter.com", "x.com"),
+                new OEmbedExtractor("Reddit", "https://www.reddit.com/oembed", "reddit.com"),
+                new OpenGraphExtractor("Bandcamp", "bandcamp.com"));
+    }
+
+    /**
+     * Adds an extractor that takes precedence over the ones registered before it.
+     */
+    public void registerExtractor(LinkExtractor extractor) {
+        extractors.add(0, extractor);
+    }
+
+    /**
+     * Hands OkHttp the addresses that already passed {@link #isAllowedAddress}, taken from the
+     * same cached resolution as the check, so the connection can't be rebound to another address.
+     */
+    private class PinnedDns implements Dns {
+        @Override
+        public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+            List<InetAddress> addresses = hostResolver.resolve(hostname);
+            for (InetAddress address : addresses) {
+                if (!isAllowedAddress(address)) {
+                    throw new UnknownHostException("Address not allowed for " + hostname);
+                }
+            }
+            return addresses;
+        }
+    }
+
+    public boolean isAllowedIP(String host) {
+        if (host == null || "localhost".equalsIgnoreCase(host)) return false;
+
+        try {
+            // Every address the name resolves to has to pass, otherwise the connect could pick a bad one
+            for (InetAddress address : hostResolver.resolve(host)) {
+                if (!isAllowedAddress(address)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    boolean isAllowedAddress(InetAddress address) {
+        return addressFilter.isAllowed(address);
+    }
+
+    public static boolean isValidScheme(URI uri) {
+        return ALLOWED_SCHEMES.contains(uri.getScheme());
+    }
+
+    public String fetchWebsiteMetadata(String url) {
+        return pageFlight.execute(url, () -> fetchTitle(url));
+    }
+
+    private String fetchTitle(String url) {
+        // One budget for the whole link: extractor, every redirect hop and the fallback
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        try {
+            URI uri = new URI(url);
+
+            if (!isValidScheme(uri) || !isAllowedIP(uri.getHost())) {
+                return "Not a allowed URL. What are you trying to do here?";
+            }
+
+            HttpUrl current = HttpUrl.get(uri.toString());
+            String extracted = extract(current, deadline);
+            if (extracted != null) {
+                return extracted;
+            }
+
+            try {
+                for (int redirects = 0; ; redirects++) {
+                    HttpUrl hopUrl = current;
+                    int hopRedirects = redirects;
+                    Hop hop = hostScheduler.run(hopUrl.host(), deadline, () -> fetchHop(hopUrl, hopRedirects, deadline));
+                    if (hop.redirect() == null) {
+                        return hop.title();
+                    }
+                    current = hop.redirect();
+                }
+            } catch (UnknownHostException e) {
+                // The pinned resolver refused the host, the fallback must not get a second try at it
+                logger.warn("Refused to fetch {}: {}", current, e.getMessage());
+                return null;
+            } catch (UpstreamUnavailableException e) {
+                logger.warn("Skipped {}: {}", current, e.getMessage());
+                return null;
+            } catch (IOException e) {
+                PageFallback fallback = pageFallback();
+                if (fallback == null) {
+                    logger.error("An error occurred while fetching via OkHttp", e);
+                    return null;
+                }
+                logger.error("An error occurred while fetching via OkHttp. Trying the fallback...", e);
+
+                HttpUrl fallbackUrl = current;
+                try {
+                    return hostScheduler.run(fallbackUrl.host(), deadline,
+                            () -> fallback.fetchTitle(fallbackUrl, remainingMs(deadline), pinnedDns));
+                } catch (Exception ex) {
+                    logger.error("An error occurred while fetching via the fallback", ex);
+                    return null;  // This will not return an error to the IRC users.
+                }
+            }
+
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            logger.error("An error occurred", e);
+            return "Invalid URL";
+        } catch (Exception e) {
+            logger.error("An error occurred", e);
+            return null;  // This will not return an error to the IRC users.
+        }
+    }
+
+    // Looked up on the first failed fetch, so the fallback's module is not loaded before it is needed
+    private PageFallback pageFallback() {
+        Optional<PageFallback> fallback = pageFallback;
+        if (fallback == null) {
+            fallback = ServiceLoader.load(PageFallback.class).findFirst();
+            pageFallback = fallback;
+        }
+        return fallback.orElse(null);
+    }
+
+    /**
+     * Outcome of one request: either the final title (null if there is nothing to show) or the
+     * checked URL of the next redirect hop.
+     */
+    private record Hop(String title, HttpUrl redirect) {
+    }
+
+    // What is left of the link's budget; throws once it is used up
+    private long remainingMs(long deadline) throws UpstreamUnavailableException {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0) {
+            throw new UpstreamUnavailableException("Link took longer than " + budgetMs + " ms");
+        }
+        return remaining;
+    }
+
+    private Hop fetchHop(HttpUrl url, int redirects, long deadline) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .get()
+                .build();
+        Call call = httpClient.newCall(request);
+        call.timeout().timeout(remainingMs(deadline), TimeUnit.MILLISECONDS);
+
+        try (Probe probe = Probe.upstream("page", url.host());
+             Response response = call.execute()) {
+            int statusCode = response.code();
+            probe.status(statusCode);
+            if (response.isRedirect()) {
+                HttpUrl target = redirectTarget(response, redirects);
+                return new Hop(null, target);
+            }
+            if (statusCode != 200) {
+                throw new IOException("Non-OK HTTP status");
+            }
+
+            String contentType = response.header("Content-Type");
+            ResponseBody body = response.body();
+            if (contentType == null || !contentType.startsWith("text/html") || body == null) {
+                throw new IOException("Invalid content type");
+            }
+
+            Document doc = Jsoup.parse(body.byteStream(), null, url.toString());
+            return new Hop(doc.title(), null);
+        }
+    }
+
+    private String extract(HttpUrl url, long deadline) {
+        for (LinkExtractor extractor : extractors) {
+            if (extractor.matches(url)) {
+                try {
+                    return hostScheduler.run(url.host(), deadline, () -> extractor.extract(url,
+                            httpClient.newBuilder().callTimeout(remainingMs(deadline), TimeUnit.MILLISECONDS).build()));
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Extractor for {} failed, fetching the page instead: {}", url.host(), e.toString());
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolves the Location of a 3xx response against the request URL and runs it through the same
+     * scheme and address checks as the original link.
+     *
+     * @return the next URL to fetch, or null if the redirect must not be followed
+     */
+    private HttpUrl redirectTarget(Response response, int redirects) {
+        HttpUrl from = response.request().url();
+        String location = response.header("Location");
+        HttpUrl target = location != null ? from.resolve(location) : null;
+        if (target == null) {
+            logger.warn("Unusable redirect from {} to {}", from, location);
+            return null;
+        }
+        if (redirects >= maxRedirects) {
+            logger.warn("Gave up on {} after {} redirects", from, redirects);
+            return null;
+        }
+        if (!isValidScheme(target.uri()) || !isAllowedIP(target.host())) {
+            logger.warn("Refused redirect from {} to {}", from, target);
+            return null;
+        }
+        return target;
+    }
+}
@@ -0,0 +1,304 @@
+package moe.herz;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes row writes off the reply path. Handlers update their in-memory state, submit the statement
+ * and answer once it is in the local {@link Journal}; one writer thread sends what piled up once
+ * {@code batchSize} writes are waiting or {@code flushMillis} after the first of them, as one
+ * transaction with a JDBC batch per run of equal statements, so writes keep their order. While the
+ * database is unreachable the batch is retried, and what it has not taken by shutdown is sent on the
+ * next start; a batch it rejects is retried row by row, dropping only the rows at fault. Statements
+ * may run again after a crash, so they must be safe to repeat.
+ */
+public class WriteBehind implements AutoCloseable {
+    private static final long RETRY_MIN_MS = 500;
+    private static final long RETRY_MAX_MS = 30_000;
+    private static final long CLOSE_TIMEOUT_MS = 10_000;
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehind.class);
+
+    private record Write(String name, String sql, Object[] params, long position) {
+    }
+
+    private final DataSource dataSource;
+    private final Journal journal;
+    private final int batchSize;
+    private final long flushNanos;
+    // Completions of the writes submitted since the start, by the journal position after them
+    private final Map<Long, CompletableFuture<Void>> waiting = new HashMap<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public WriteBehind(DataSource dataSource, Journal journal, int batchSize, long flushMillis) {
+        this.dataSource = dataSource;
+        this.journal = journal;
+        this.batchSize = batchSize;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.writer = new Thread(this::run, "db-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Journals a statement and returns once it is durable there.
+     *
+     * @param name   statement name for metrics, as for {@link Probe#query}
+     * @param params bound in order with {@link PreparedStatement#setObject}; strings, numbers,
+     *               timestamps or null
+     * @return completes once the row is committed, or exceptionally if the database refused it; it
+     *         has already failed on return if the journal could not take the statement, which callers
+     *         should tell the user about, as nothing of it will be kept
+     */
+    public CompletableFuture<Void> submit(String name, String sql, Object... params) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        try {
+            byte[] payload = encode(name, sql, params);
+            long position;
+            // The writer only sees the record after the sync below, when it is registered
+            synchronized (waiting) {
+                position = journal.append(payload);
+                waiting.put(position, done);
+            }
+            journal.sync(position);
+        } catch (IOException e) {
+            logger.error("An error occurred", e);
+            done.completeExceptionally(e);
+        }
+        return done;
+    }
+
+    public int getPendingCount() {
+        return journal.getPendingCount();
+    }
+
+    private void run() {
+        long position = journal.getAcknowledged();
+        long delay = RETRY_MIN_MS;
+        while (true) {
+            try {
+                List<Journal.Record> records = journal.read(position, batchSize);
+                if (records.isEmpty()) {
+                    if (closed) {
+                        return;
+                    }
+                    journal.await(position, 1, TimeUnit.SECONDS);
+                    continue;
+                }
+                long deadline = System.nanoTime() + flushNanos;
+                while (records.size() < batchSize && !closed) {
+                    long next = records.get(records.size() - 1).next();
+                    if (!journal.await(next, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                        break;
+                    }
+                    records.addAll(journal.read(next, batchSize - records.size()));
+                }
+
+                List<Write> batch = new ArrayList<>(records.size());
+                for (Journal.Record record : records) {
+                    try {
+                        batch.add(decode(record));
+                    } catch (IOException e) {
+                        logger.error("Dropped a journal record that could not be read", e);
+                    }
+                }
+                if (!flush(batch)) {
+                    return;
+                }
+                position = records.get(records.size() - 1).next();
+                journal.acknowledge(position, records.size());
+                delay = RETRY_MIN_MS;
+            } catch (RuntimeException e) {
+                // A bug or a misbehaving driver must not stop the writer; the same records are tried again
+                if (closed) {
+                    return;
+                }
+                logger.error("Writing journaled rows failed, retrying in " + delay + " ms", e);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                delay = Math.min(delay * 2, RETRY_MAX_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // False if the database was unreachable while closing, the batch then stays in the journal
+    private boolean flush(List<Write> batch) throws InterruptedException {
+        long delay = RETRY_MIN_MS;
+        while (true) {
+            try {
+                execute(batch);
+                batch.forEach(write -> complete(write, null));
+                return true;
+            } catch (SQLException e) {
+                if (isTransient(e)) {
+                    if (closed) {
+                        return false;
+                    }
+                    logger.warn("Could not write {} rows, retrying in {} ms: {}", batch.size(), delay, e.getMessage());
+                    Thread.sleep(delay);
+                    delay = Math.min(delay * 2, RETRY_MAX_MS);
+                } else if (batch.size() > 1) {
+                    for (Write write : batch) {
+                        if (!flush(List.of(write))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                } else {
+                    logger.error("Dropped a write the database refused: " + batch.get(0).sql(), e);
+                    complete(batch.get(0), e);
+                    return true;
+                }
+            }
+        }
+    }
+
+    private void complete(Write write, Throwable error) {
+        CompletableFuture<Void> done;
+        synchronized (waiting) {
+            done = waiting.remove(write.position());
+        }
+        if (done == null) {
+            return;  // Journaled by an earlier run
+        }
+        if (error == null) {
+            done.complete(null);
+        } else {
+            done.completeExceptionally(error);
+        }
+    }
+
+    private void execute(List<Write> batch) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                int start = 0;
+                while (start < batch.size()) {
+                    String sql = batch.get(start).sql();
+                    int end = start;
+                    try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                        while (end < batch.size() && batch.get(end).sql().equals(sql)) {
+                            Object[] params = batch.get(end).params();
+                            for (int i = 0; i < params.length; i++) {
+                                stmt.setObject(i + 1, params[i]);
+                            }
+                            stmt.addBatch();
+                            end++;
+                        }
+                        Probe.query(batch.get(start).name()).run(stmt::executeBatch);
+                    }
+                    start = end;
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Connection trouble, a pool timeout or a serialization failure; anything else is the data's fault
+    private static boolean isTransient(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientException || e instanceof SQLRecoverableException
+                || (state != null && (state.startsWith("08") || state.startsWith("57P") || state.startsWith("40")));
+    }
+
+    private static byte[] encode(String name, String sql, Object[] params) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(name);
+            out.writeUTF(sql);
+            out.writeByte(params.length);
+            for (Object param : params) {
+                if (param == null) {
+                    out.writeByte(0);
+                } else if (param instanceof String text) {
+                    out.writeByte(1);
+                    out.writeUTF(text);
+                } else if (param instanceof Long number) {
+                    out.writeByte(2);
+                    out.writeLong(number);
+                } else if (param instanceof Integer number) {
+                    out.writeByte(3);
+                    out.writeInt(number);
+                } else if (param instanceof Timestamp timestamp) {
+                    out.writeByte(4);
+                    out.writeLong(timestamp.getTime());
+                    out.writeInt(timestamp.getNanos());
+                } else {
+                    throw new IllegalArgumentException("Cannot journal a " + param.getClass().getName());
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Write decode(Journal.Record record) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.payload()))) {
+            String name = in.readUTF();
+            String sql = in.readUTF();
+            Object[] params = new Object[in.readUnsignedByte()];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = switch (in.readByte()) {
+                    case 0 -> null;
+                    case 1 -> in.readUTF();
+                    case 2 -> in.readLong();
+                    case 3 -> in.readInt();
+                    case 4 -> {
+                        Timestamp timestamp = new Timestamp(in.readLong());
+                        timestamp.setNanos(in.readInt());
+                        yield timestamp;
+                    }
+                    default -> throw new IOException("Unknown parameter type in the journal");
+                };
+            }
+            return new Write(name, sql, params, record.next());
+        }
+    }
+
+    /**
+     * Writes what is still journaled, leaving it for the next start if the database does not take
+     * it within a few seconds.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.interrupt();
+        if (journal.getPendingCount() > 0) {
+            logger.warn("{} writes stay in the journal until the next start", journal.getPendingCount());
+        }
+        journal.close();
+    }
+}
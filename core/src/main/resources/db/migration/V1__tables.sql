@@ -0,0 +1,27 @@
+-- The tables as the bot has always used them; installations from before migrations already have them
+CREATE TABLE IF NOT EXISTS tellnew (
+    sender VARCHAR(255) NOT NULL,
+    recipient VARCHAR(255) NOT NULL,
+    message TEXT NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    server VARCHAR(255),
+    channel VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS UndineReminder (
+    id SERIAL PRIMARY KEY,
+    sender VARCHAR(255) NOT NULL,
+    message TEXT NOT NULL,
+    remind_at TIMESTAMP NOT NULL,
+    channel VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS lastfmnames (
+    username VARCHAR(255) PRIMARY KEY,
+    lastfm_username VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS nickserv_registration (
+    server_name VARCHAR(255) PRIMARY KEY,
+    is_registered BOOLEAN NOT NULL DEFAULT false
+);
@@ -0,0 +1,4 @@
+-- The network a reminder was set on and which instance is delivering it, see ReminderHandler.claimDueReminders
+ALTER TABLE UndineReminder ADD COLUMN IF NOT EXISTS server VARCHAR(255);
+ALTER TABLE UndineReminder ADD COLUMN IF NOT EXISTS lease_owner VARCHAR(255);
+ALTER TABLE UndineReminder ADD COLUMN IF NOT EXISTS lease_until TIMESTAMP;
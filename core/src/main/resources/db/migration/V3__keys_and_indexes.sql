@@ -0,0 +1,12 @@
+-- tellnew never had a key
+DO $$ BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_index WHERE indrelid = 'tellnew'::regclass AND indisprimary) THEN
+        ALTER TABLE tellnew ADD COLUMN id BIGSERIAL PRIMARY KEY;
+    END IF;
+END $$;
+
+-- Tells for a recipient, and from one sender to a recipient; both counts are answered from the index alone
+CREATE INDEX IF NOT EXISTS tellnew_recipient_sender_idx ON tellnew (recipient, sender);
+
+-- Due reminders in order of their time
+CREATE INDEX IF NOT EXISTS undinereminder_remind_at_idx ON UndineReminder (remind_at);
@@ -0,0 +1,24 @@
+-- Publishes changed rows on the musicbot_changes channel, see ChangeListener
+CREATE OR REPLACE FUNCTION musicbot_notify_change() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        PERFORM pg_notify('musicbot_changes', json_build_object('table', TG_TABLE_NAME, 'op', TG_OP, 'row', row_to_json(OLD))::text);
+    ELSE
+        PERFORM pg_notify('musicbot_changes', json_build_object('table', TG_TABLE_NAME, 'op', TG_OP, 'row', row_to_json(NEW))::text);
+    END IF;
+    RETURN NULL;
+END $$ LANGUAGE plpgsql;
+
+-- Earlier versions installed the same triggers at startup
+DROP TRIGGER IF EXISTS tellnew_notify_change ON tellnew;
+CREATE TRIGGER tellnew_notify_change AFTER INSERT OR DELETE ON tellnew
+    FOR EACH ROW EXECUTE FUNCTION musicbot_notify_change();
+
+-- Reminder updates are lease bookkeeping and not worth a notification
+DROP TRIGGER IF EXISTS undinereminder_notify_change ON UndineReminder;
+CREATE TRIGGER undinereminder_notify_change AFTER INSERT OR DELETE ON UndineReminder
+    FOR EACH ROW EXECUTE FUNCTION musicbot_notify_change();
+
+DROP TRIGGER IF EXISTS lastfmnames_notify_change ON lastfmnames;
+CREATE TRIGGER lastfmnames_notify_change AFTER INSERT OR UPDATE OR DELETE ON lastfmnames
+    FOR EACH ROW EXECUTE FUNCTION musicbot_notify_change();
@@ -0,0 +1,8 @@
+-- Reminder ids are made up by the bot now, see IdGenerator; the sequence stays for rows added by hand
+ALTER TABLE UndineReminder ALTER COLUMN id TYPE BIGINT;
+
+DO $$ BEGIN
+    IF pg_get_serial_sequence('undinereminder', 'id') IS NOT NULL THEN
+        EXECUTE 'ALTER SEQUENCE ' || pg_get_serial_sequence('undinereminder', 'id') || ' AS BIGINT';
+    END IF;
+END $$;
@@ -0,0 +1,3 @@
+-- Pending tells are counted in memory and loaded whole, so no query reads tellnew by recipient any more;
+-- the index only cost every insert and delete
+DROP INDEX IF EXISTS tellnew_recipient_sender_idx;
@@ -0,0 +1,228 @@
+package moe.herz;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTest {
+    private static final int SEGMENT_BYTES = 4096;
+    private static final int HEADER = 16;
+    private static final int RECORD_HEADER = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsOnlySyncedRecords() throws IOException {
+        try (Journal journal = new Journal(directory, SEGMENT_BYTES)) {
+            long position = journal.append(bytes("one"));
+            assertTrue(journal.read(journal.getAcknowledged(), 10).isEmpty());
+            journal.sync(position);
+            assertEquals(List.of("one"), payloads(journal.read(journal.getAcknowledged(), 10)));
+        }
+    }
+
+    @Test
+    void recoversRecordsAfterRestart() throws IOException {
+        try (Journal journal = new Journal(directory, SEGMENT_BYTES)) {
+            append(journal, "one", "two", "three");
+        }
+        try (Journal journal = new Journal(directory, SEGMENT_BYTES)) {
+            assertEquals(3, journal.getPendingCount());
+            assertEquals(List.of("one", "two", "three"), payloads(journal.read(journal.getAcknowledged(), 10)));
+        }
+    }
+
+    @Test
+    void ignoresTornTail() throws IOException {
+        long end;
+        try (Journal journal = new Journal(directory, SEGMENT_BYTES)) {
+            end = append(journal, "one", "two");
+        }
+        // A record whose length made it to disk but whose payload did not
+        writeInt(segment(0), (int) end, 5);
+        writeInt(segment(0), (int) end + 4, 0x12345678);
+
+        try (Journal journal = new Journal(directory, SEGMENT_BYTES)) {
+            assertEquals(2, journal.getPendingCount());
+            assertEquals(List.of("one", "two"), payloads(journal.read(journal.getAcknowledged(), 10)));
+            append(journal, "three");
+        }
+        try (Journal journal = new Journal(directory, SEGMENT_BYTES)) {
+            assertEquals(List.of("one", "two", "three"), payloads(journal.read(journal.getAcknowledged(), 10)));
+        }
+    }
+
+    @Test
+    void stopsAtRecordWithBadChecksum() throws IOException {
+        try (Journal journal = new Journal(directory, SEGMENT_BYTES)) {
+            append(journal, "one", "two", "three");
+        }
+        int second = HEADER + RECORD_HEADER + "one".length();
+        flipByte(segment(0), second + RECORD_HEADER);
+
+        try (Journal journal = new Journal(directory, SEGMENT_BYTES)) {
+            assertEquals(List.of("one"), payloads(journal.read(journal.getAcknowledged(), 10)));
+            assertEquals(1, journal.getPendingCount());
+        }
+    }
+
+    @Test
+    void resumesAfterAcknowledgedPosition() throws IOException {
+        try (Journal journal = new Journal(directory, SEGMENT_BYTES)) {
+            append(journal, "one", "two", "three");
+            List<Journal.Record> records = journal.read(journal.getAcknowledged(), 1);
+            journal.acknowledge(records.get(0).next(), 1);
+        }
+        try (Journal journal = new Journal(directory, SEGMENT_BYTES)) {
+            assertEquals(2, journal.getPendingCount());
+            assertEquals(List.of("two", "three"), payloads(journal.read(journal.getAcknowledged(), 10)));
+        }
+    }
+
+    @Test
+    void replaysFromStaleAcknowledgement() throws IOException {
+        try (Journal journal = new Journal(directory, SEGMENT_BYTES)) {
+            append(journal, "one", "two", "three");
+            List<Journal.Record> records = journal.read(journal.getAcknowledged(), 2);
+            journal.acknowledge(records.get(1).next(), 2);
+        }
+        // The header update was lost in a crash, so the acknowledged records come again
+        writeLong(segment(0), 8, 0);
+
+        try (Journal journal = new Journal(directory, SEGMENT_BYTES)) {
+            assertEquals(3, journal.getPendingCount());
+            assertEquals(List.of("one", "two", "three"), payloads(journal.read(journal.getAcknowledged(), 10)));
+        }
+    }
+
+    @Test
+    void rollsOverAndDeletesAcknowledgedSegments() throws IOException {
+        int segmentBytes = 256;
+        int count = 40;
+        try (Journal journal = new Journal(directory, segmentBytes)) {
+            for (int i = 0; i < count; i++) {
+                append(journal, "record " + i);
+            }
+            assertTrue(segmentFiles().size() > 1);
+
+            List<Journal.Record> records = journal.read(journal.getAcknowledged(), count);
+            assertEquals(count, records.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals("record " + i, text(records.get(i)));
+            }
+
+            journal.acknowledge(records.get(count - 1).next(), count);
+            assertEquals(1, segmentFiles().size());
+            assertEquals(0, journal.getPendingCount());
+        }
+        try (Journal journal = new Journal(directory, segmentBytes)) {
+            assertEquals(0, journal.getPendingCount());
+            assertTrue(journal.read(journal.getAcknowledged(), 10).isEmpty());
+        }
+    }
+
+    @Test
+    void recoversAcrossSegments() throws IOException {
+        int segmentBytes = 256;
+        try (Journal journal = new Journal(directory, segmentBytes)) {
+            for (int i = 0; i < 20; i++) {
+                append(journal, "record " + i);
+            }
+            List<Journal.Record> records = journal.read(journal.getAcknowledged(), 5);
+            journal.acknowledge(records.get(4).next(), 5);
+        }
+        try (Journal journal = new Journal(directory, segmentBytes)) {
+            assertEquals(15, journal.getPendingCount());
+            List<Journal.Record> records = journal.read(journal.getAcknowledged(), 20);
+            assertEquals(15, records.size());
+            assertEquals("record 5", text(records.get(0)));
+            assertEquals("record 19", text(records.get(14)));
+        }
+    }
+
+    @Test
+    void refusesSecondInstance() throws IOException {
+        Journal journal = new Journal(directory, SEGMENT_BYTES);
+        try {
+            assertThrows(IOException.class, () -> new Journal(directory, SEGMENT_BYTES));
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    void rejectsOversizedRecord() throws IOException {
+        try (Journal journal = new Journal(directory, SEGMENT_BYTES)) {
+            assertThrows(IllegalArgumentException.class, () -> journal.append(new byte[SEGMENT_BYTES]));
+            assertThrows(IllegalArgumentException.class, () -> journal.append(new byte[0]));
+        }
+    }
+
+    private static long append(Journal journal, String... texts) throws IOException {
+        long position = 0;
+        for (String text : texts) {
+            position = journal.append(bytes(text));
+        }
+        journal.sync(position);
+        return position;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(Journal.Record record) {
+        return new String(record.payload(), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> payloads(List<Journal.Record> records) {
+        return records.stream().map(JournalTest::text).toList();
+    }
+
+    private Path segment(long base) {
+        return directory.resolve(String.format("%020d.journal", base));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".journal")).toList();
+        }
+    }
+
+    private static void writeInt(Path file, int offset, int value) throws IOException {
+        write(file, offset, ByteBuffer.allocate(4).putInt(0, value));
+    }
+
+    private static void writeLong(Path file, int offset, long value) throws IOException {
+        write(file, offset, ByteBuffer.allocate(8).putLong(0, value));
+    }
+
+    private static void flipByte(Path file, int offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, offset);
+            buffer.put(0, (byte) ~buffer.get(0));
+            channel.write(buffer.rewind(), offset);
+        }
+    }
+
+    private static void write(Path file, int offset, ByteBuffer buffer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(buffer, offset);
+        }
+    }
+}
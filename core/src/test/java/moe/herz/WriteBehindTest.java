@@ -0,0 +1,220 @@
+package moe.herz;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteBehindTest {
+    private static final String INSERT = "INSERT INTO t (value) VALUES (?)";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void retriesRejectedBatchRowByRow() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        database.rejected = "bad";
+        try (WriteBehind writes = new WriteBehind(database, new Journal(directory, 1 << 16), 10, 200)) {
+            CompletableFuture<Void> first = writes.submit("insert", INSERT, "one");
+            CompletableFuture<Void> bad = writes.submit("insert", INSERT, "bad");
+            CompletableFuture<Void> third = writes.submit("insert", INSERT, "three");
+
+            assertNull(first.get(5, TimeUnit.SECONDS));
+            assertNull(third.get(5, TimeUnit.SECONDS));
+            ExecutionException error = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(SQLException.class, error.getCause());
+
+            assertEquals(List.of("one", "three"), database.committed);
+            assertEquals(3, database.batchSizes.get(0));
+            awaitFlushed(writes);
+        }
+    }
+
+    @Test
+    void retriesBatchWhileDatabaseIsUnreachable() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        database.unreachableFor.set(2);
+        try (WriteBehind writes = new WriteBehind(database, new Journal(directory, 1 << 16), 10, 50)) {
+            CompletableFuture<Void> first = writes.submit("insert", INSERT, "one");
+            CompletableFuture<Void> second = writes.submit("insert", INSERT, "two");
+
+            assertNull(first.get(10, TimeUnit.SECONDS));
+            assertNull(second.get(10, TimeUnit.SECONDS));
+            assertEquals(List.of("one", "two"), database.committed);
+        }
+    }
+
+    @Test
+    void keepsWritingAfterUnexpectedError() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        database.brokenFor.set(1);
+        try (WriteBehind writes = new WriteBehind(database, new Journal(directory, 1 << 16), 10, 50)) {
+            CompletableFuture<Void> first = writes.submit("insert", INSERT, "one");
+
+            assertNull(first.get(10, TimeUnit.SECONDS));
+            assertNull(writes.submit("insert", INSERT, "two").get(10, TimeUnit.SECONDS));
+            assertEquals(List.of("one", "two"), database.committed);
+        }
+    }
+
+    @Test
+    void sendsJournaledWritesOnNextStart() throws Exception {
+        FakeDatabase down = new FakeDatabase();
+        down.unreachableFor.set(Integer.MAX_VALUE);
+        try (WriteBehind writes = new WriteBehind(down, new Journal(directory, 1 << 16), 10, 50)) {
+            writes.submit("insert", INSERT, "one");
+            writes.submit("insert", INSERT, "two");
+        }
+
+        FakeDatabase up = new FakeDatabase();
+        try (WriteBehind writes = new WriteBehind(up, new Journal(directory, 1 << 16), 10, 50)) {
+            awaitFlushed(writes);
+            assertEquals(List.of("one", "two"), up.committed);
+        }
+    }
+
+    // The journal is acknowledged just after the futures complete
+    private static void awaitFlushed(WriteBehind writes) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (writes.getPendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, writes.getPendingCount());
+    }
+
+    // Commits the first parameter of each row; a batch with the rejected value fails as a whole
+    private static final class FakeDatabase implements DataSource {
+        final List<String> committed = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger unreachableFor = new AtomicInteger();
+        final AtomicInteger brokenFor = new AtomicInteger();
+        volatile String rejected;
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (unreachableFor.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+                throw new SQLTransientConnectionException("Connection refused");
+            }
+            if (brokenFor.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+                throw new IllegalStateException("Driver bug");
+            }
+            List<String> transaction = new ArrayList<>();
+            return proxy(Connection.class, (method, args) -> switch (method) {
+                case "prepareStatement" -> statement(transaction);
+                case "commit" -> {
+                    committed.addAll(transaction);
+                    transaction.clear();
+                    yield null;
+                }
+                case "rollback" -> {
+                    transaction.clear();
+                    yield null;
+                }
+                default -> null;
+            });
+        }
+
+        private PreparedStatement statement(List<String> transaction) {
+            List<String> batch = new ArrayList<>();
+            String[] row = new String[1];
+            return proxy(PreparedStatement.class, (method, args) -> switch (method) {
+                case "setObject" -> {
+                    row[0] = (String) args[1];
+                    yield null;
+                }
+                case "addBatch" -> {
+                    batch.add(row[0]);
+                    yield null;
+                }
+                case "executeBatch" -> {
+                    batchSizes.add(batch.size());
+                    if (batch.contains(rejected)) {
+                        throw new SQLException("duplicate key value", "23505");
+                    }
+                    transaction.addAll(batch);
+                    int[] counts = new int[batch.size()];
+                    batch.clear();
+                    yield counts;
+                }
+                default -> null;
+            });
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return null;
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return 0;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            throw new SQLException("Not a wrapper");
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return false;
+        }
+    }
+
+    private interface Handler {
+        Object handle(String method, Object[] args) throws SQLException;
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result = handler.handle(method.getName(), args);
+            if (result == null && method.getReturnType() == boolean.class) {
+                return false;
+            }
+            if (result == null && method.getReturnType() == int.class) {
+                return 0;
+            }
+            return result;
+        }));
+    }
+}
@@ -0,0 +1,53 @@
+package moe.herz;
+
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.htmlunit.HttpWebConnection;
+import org.htmlunit.WebClient;
+import org.htmlunit.html.HtmlPage;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ * Title lookup through HtmlUnit for pages the plain fetch could not read. Found by
+ * {@link UrlMetadataFetcher} through {@code META-INF/services/moe.herz.PageFallback}.
+ */
+public final class HtmlUnitFallback implements PageFallback {
+
+    @Override
+    public String fetchTitle(HttpUrl url, long budgetMs, Dns dns) throws IOException {
+        try (Probe probe = Probe.upstream("page_fallback", url.host());
+             final WebClient webClient = new WebClient()) {
+            webClient.getOptions().setJavaScriptEnabled(false);  // Disable JavaScript
+            webClient.getOptions().setCssEnabled(false);
+            webClient.getOptions().setRedirectEnabled(false);  // Redirects were already followed and checked
+            webClient.getOptions().setTimeout((int) budgetMs);
+            // Nothing but the page itself is loaded: no meta refresh, no frames
+            webClient.setRefreshHandler((page, target, seconds) -> {
+            });
+            webClient.setFrameContentHandler(frame -> false);
+            webClient.setWebConnection(new PinnedWebConnection(webClient, dns));
+            final HtmlPage page = webClient.getPage(url.toString());
+            probe.status(page.getWebResponse().getStatusCode());
+            return page.getTitleText();
+        }
+    }
+
+    // Resolves every host through the fetcher's pinned resolver, so HtmlUnit can't be rebound to another address
+    private static final class PinnedWebConnection extends HttpWebConnection {
+        private final Dns dns;
+
+        PinnedWebConnection(WebClient webClient, Dns dns) {
+            super(webClient);
+            this.dns = dns;
+        }
+
+        @Override
+        protected HttpClientBuilder createHttpClientBuilder() {
+            return super.createHttpClientBuilder()
+                    .setDnsResolver(host -> dns.lookup(host).toArray(new InetAddress[0]));
+        }
+    }
+}
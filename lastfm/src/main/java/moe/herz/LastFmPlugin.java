@@ -0,0 +1,76 @@
+package moe.herz;
+
+import org.pircbotx.hooks.types.GenericMessageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+/**
+ * {@code .np}, the track a Last.fm user is listening to. Remembers each nick's Last.fm name.
+ */
+public class LastFmPlugin implements BotPlugin {
+    private static final String RECENT_TRACKS = "{\"recenttracks\":{\"track\":[{\"name\":\"Roygbiv\",\"artist\":{\"#text\":\"Boards of Canada\"},"
+            + "\"album\":{\"#text\":\"Music Has the Right to Children\"},\"@attr\":{\"nowplaying\":\"true\"}}]}}";
+    private static final String TOP_TAGS = "{\"toptags\":{\"tag\":[{\"name\":\"electronic\"},{\"name\":\"idm\"},{\"name\":\"ambient\"}]}}";
+    private static final Logger logger = LoggerFactory.getLogger(LastFmPlugin.class);
+
+    private LastFmService lastFmService;
+
+    @Override
+    public String getName() {
+        return "lastfm";
+    }
+
+    @Override
+    public void init(Config config, ChangeListener changeListener) {
+        lastFmService = new LastFmService(config);
+        changeListener.subscribe("lastfmnames", lastFmService);
+    }
+
+    @Override
+    public List<Command> getCommands() {
+        return List.of(new Command("np", ".np", ".np <last.fm username>",
+                "Displays the most recent song played by the specified Last.fm username. You only need to provide your Last.fm username once.",
+                this::handleNowPlayingCommand));
+    }
+
+    @Override
+    public void warmUp(int rounds) throws IOException {
+        for (int i = 0; i < rounds; i++) {
+            LastFmService.readRecentTracks(new StringReader(RECENT_TRACKS));
+            LastFmService.readTopTags(new StringReader(TOP_TAGS), 3);
+        }
+    }
+
+    private void handleNowPlayingCommand(GenericMessageEvent event, String message) {
+        String ircUsername = event.getUser().getNick();
+        String username;
+
+        if (message.length() > 4) {
+            // Extract the username from the message if it's provided
+            username = message.substring(4);
+            if (!lastFmService.saveLastFmUsername(ircUsername, username)) {
+                Replies.respond(event, "I could not remember your Last.fm username this time, you may have to give it again.");
+            }
+        } else {
+            // If no Last.fm username was specified in the message, get it from the database
+            username = lastFmService.getLastFmUsernameFromDb(ircUsername);
+
+            // If the Last.fm username couldn't be retrieved from the database, there's nothing more to do
+            if (username == null) {
+                Replies.respond(event, "No Last.fm username associated with " + ircUsername + ". Please provide your Last.fm username.");
+                return;
+            }
+        }
+
+        try {
+            String response = lastFmService.getCurrentTrack(username);
+            Replies.respond(event, response);
+        } catch (Exception e) {
+            logger.error("An error occurred", e);
+        }
+    }
+}
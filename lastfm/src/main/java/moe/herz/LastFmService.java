@@ -0,0 +1,349 @@
+package moe.herz;
+
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.Optional;
+import javax.sql.DataSource;
+
+public class LastFmService implements ChangeListener.Subscriber {
+    private final String apiKey;
+    private final String apiUrl;
+    private final DataSource dataSource;
+    private final WriteBehind writes;
+    private final UpstreamGuard guard;
+    private final HttpClient client;
+    private final SingleFlight<String, String> currentTrackFlight = new SingleFlight<>("lastfm");
+    // IRC nick -> Last.fm name, including nicks without one; kept current by the change feed
+    private final ExpiringCache<String, Optional<String>> usernameCache = new ExpiringCache<>(4096);
+    private static final Duration USERNAME_CACHE_TTL = Duration.ofDays(1);
+    private static final Logger logger = LoggerFactory.getLogger(LastFmService.class);
+
+    record RecentTrack(String name, String artist, String album, boolean nowPlaying) {
+    }
+
+    /**
+     * Either the API error text or the most recent track, which is null if the user has none.
+     */
+    record RecentTracksReply(String error, RecentTrack track) {
+    }
+
+    private interface Extractor<T> {
+        T read(JsonReader reader) throws IOException;
+    }
+
+    public LastFmService(Config config) {
+        this.apiKey = config.getlastfmapiKey();
+        this.apiUrl = config.getLastFmApiUrl();
+        this.dataSource = config.getDataSource();
+        this.writes = config.getWriteBehind();
+        this.guard = new UpstreamGuard("lastfm", config, 4000);
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(guard.getBudgetMs()))
+                .build();
+    }
+
+    public String getCurrentTrack(String username) {
+        return currentTrackFlight.execute(username.toLowerCase(), () -> fetchCurrentTrack(username));
+    }
+
+    private String fetchCurrentTrack(String username) {
+        // Check if username is an IRC username or a Last.fm username
+        String lastfmUsername = getLastFmUsernameFromDb(username);
+        if (lastfmUsername == null) {
+            lastfmUsername = username;
+        }
+        lastfmUsername = URLEncoder.encode(lastfmUsername, StandardCharsets.UTF_8);
+
+        String url = String.format("%s?method=user.getrecenttracks&user=%s&api_key=%s&format=json&limit=1",
+                apiUrl, lastfmUsername, apiKey);
+
+        try {
+            URI uri = new URI(url);
+
+            RecentTracksReply reply = guard.call(() -> request(uri, LastFmService::readRecentTracks));
+            if (reply.error() != null) {
+                return reply.error();
+            }
+
+            RecentTrack track = reply.track();
+            if (track == null) {
+                return "No recent tracks found";
+            }
+
+            String topTags = "";
+            if (track.album() != null) {
+                topTags = getTopTags(track.artist());
+            }
+
+            String message = (track.nowPlaying() ? "Currently playing: " : "Last played track: ")
+                    + track.name() + " by " + track.artist();
+            if (track.album() != null && !topTags.isEmpty()) {
+                message += " | Tags: " + topTags;
+            }
+            return message;
+        } catch (UpstreamUnavailableException e) {
+            logger.warn("Last.fm lookup skipped: {}", e.getMessage());
+            return "Last.fm is not responding right now, try again in a bit.";
+        } catch (UpstreamRequestException e) {
+            return e.getMessage();
+        } catch (URISyntaxException | IOException | IllegalStateException e) {
+            logger.error("An error occurred", e);
+            return "Error retrieving last.fm data";
+        }
+    }
+
+    public String getTopTags(String artist) {
+        String artistEncoded = URLEncoder.encode(artist, StandardCharsets.UTF_8);
+
+        // Using artist.gettoptags method in URL
+        String url = String.format("%s?method=artist.gettoptags&artist=%s&api_key=%s&format=json",
+                apiUrl, artistEncoded, apiKey);
+        try {
+            URI uri = new URI(url);
+            return guard.call(() -> request(uri, reader -> readTopTags(reader, 3)));
+        } catch (UpstreamRequestException e) {
+            logger.debug("No tags for {}: {}", artist, e.getMessage());
+        } catch (URISyntaxException | IOException | IllegalStateException e) {
+            logger.error("An error occurred", e);
+        }
+        return "";
+    }
+
+    private <T> T request(URI uri, Extractor<T> extractor) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(guard.getBudgetMs()))
+                .build();
+        HttpResponse<InputStream> response;
+        try (Probe probe = Probe.upstream("lastfm", uri.getHost())) {
+            response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            probe.status(response.statusCode());
+        }
+
+        try (InputStream inputStream = response.body();
+             JsonReader reader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            int status = response.statusCode();
+            if (status >= 400 && status < 500) {
+                // Last.fm explains refused requests in the body, e.g. error 6 for an unknown user
+                String error = null;
+                try {
+                    error = readError(reader);
+                } catch (IOException | IllegalStateException e) {
+                    logger.debug("Unreadable Last.fm error body", e);
+                }
+                throw new UpstreamRequestException(error != null ? error : "Last.fm refused the request (" + status + ")");
+            }
+            if (status < 200 || status >= 300) {
+                throw new IOException("Last.fm API returned " + status);
+            }
+            // The extractors stop reading as soon as they have what they need
+            return extractor.read(reader);
+        }
+    }
+
+    static RecentTracksReply readRecentTracks(Reader json) throws IOException {
+        return readRecentTracks(new JsonReader(json));
+    }
+
+    // The text of an error reply such as {"error": 6, "message": "User not found"}, or null if it is none
+    private static String readError(JsonReader reader) throws IOException {
+        String errorCode = null;
+        String errorMessage = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "error" -> errorCode = reader.nextString();
+                case "message" -> errorMessage = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        return errorCode != null ? "Error: " + errorCode + " - " + errorMessage : null;
+    }
+
+    private static RecentTracksReply readRecentTracks(JsonReader reader) throws IOException {
+        String errorCode = null;
+        String errorMessage = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "error" -> errorCode = reader.nextString();
+                case "message" -> errorMessage = reader.nextString();
+                case "recenttracks" -> {
+                    return new RecentTracksReply(null, readFirstTrack(reader));
+                }
+                default -> reader.skipValue();
+            }
+        }
+        return new RecentTracksReply(errorCode != null ? "Error: " + errorCode + " - " + errorMessage : null, null);
+    }
+
+    private static RecentTrack readFirstTrack(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("track") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                return reader.hasNext() ? readTrack(reader) : null;
+            }
+            reader.skipValue();
+        }
+        return null;
+    }
+
+    private static RecentTrack readTrack(JsonReader reader) throws IOException {
+        String name = null;
+        String artist = null;
+        String album = null;
+        boolean nowPlaying = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name" -> name = reader.nextString();
+                case "artist" -> artist = readText(reader);
+                case "album" -> album = readText(reader);
+                case "@attr" -> nowPlaying = readHasField(reader, "nowplaying");
+                default -> reader.skipValue();
+            }
+        }
+        if (name == null || artist == null) {
+            throw new IllegalStateException("Track without name or artist");
+        }
+        return new RecentTrack(name, artist, album, nowPlaying);
+    }
+
+    static String readTopTags(Reader json, int limit) throws IOException {
+        return readTopTags(new JsonReader(json), limit);
+    }
+
+    private static String readTopTags(JsonReader reader, int limit) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("toptags")) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("tag") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        return readTagNames(reader, limit);
+                    }
+                    reader.skipValue();
+                }
+                return "";
+            }
+            reader.skipValue();
+        }
+        return "";
+    }
+
+    private static String readTagNames(JsonReader reader, int limit) throws IOException {
+        StringBuilder topTagsBuilder = new StringBuilder();
+        reader.beginArray();
+        for (int count = 0; count < limit && reader.hasNext(); count++) {
+            String tagName = readField(reader, "name");
+            if (tagName != null) {
+                if (topTagsBuilder.length() > 0) {
+                    topTagsBuilder.append(", ");
+                }
+                topTagsBuilder.append(tagName);
+            }
+        }
+        return topTagsBuilder.toString();
+    }
+
+    // Last.fm nests most text as {"#text": "..."}; null if the value is JSON null
+    private static String readText(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return reader.nextString();
+        }
+        return readField(reader, "#text");
+    }
+
+    // Reads one whole object and returns the string value of the given field
+    private static String readField(JsonReader reader, String field) throws IOException {
+        String value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(field) && reader.peek() != JsonToken.NULL) {
+                value = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
+    }
+
+    private static boolean readHasField(JsonReader reader, String field) throws IOException {
+        boolean found = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            found |= reader.nextName().equals(field);
+            reader.skipValue();
+        }
+        reader.endObject();
+        return found;
+    }
+
+    /**
+     * @return false if the name could not be journaled and is not remembered
+     */
+    public boolean saveLastFmUsername(String ircUsername, String lastfmUsername) {
+        boolean journaled = !writes.submit("lastfm_name_upsert", "INSERT INTO lastfmnames (username, lastfm_username) VALUES (?, ?) ON CONFLICT (username) DO UPDATE SET lastfm_username = ?",
+                ircUsername, lastfmUsername, lastfmUsername).isCompletedExceptionally();
+        if (journaled) {
+            usernameCache.put(ircUsername, Optional.of(lastfmUsername), USERNAME_CACHE_TTL);
+        }
+        return journaled;
+    }
+
+    public String getLastFmUsernameFromDb(String username) {
+        Optional<String> cached = usernameCache.get(username);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        String sql = "SELECT lastfm_username FROM lastfmnames WHERE username = ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, username);
+            ResultSet rs = Probe.query("lastfm_name_select").time(stmt::executeQuery);
+            String lastfmUsername = rs.next() ? rs.getString("lastfm_username") : null;
+            usernameCache.put(username, Optional.ofNullable(lastfmUsername), USERNAME_CACHE_TTL);
+            return lastfmUsername;
+        } catch (SQLException e) {
+            logger.error("An error occurred", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void applyChange(String operation, JsonObject row) {
+        String username = ChangeListener.text(row, "username");
+        if (operation.equals("DELETE")) {
+            usernameCache.put(username, Optional.empty(), USERNAME_CACHE_TTL);
+        } else {
+            usernameCache.put(username, Optional.ofNullable(ChangeListener.text(row, "lastfm_username")), USERNAME_CACHE_TTL);
+        }
+    }
+
+    @Override
+    public void reload() {
+        usernameCache.clear();
+    }
+}
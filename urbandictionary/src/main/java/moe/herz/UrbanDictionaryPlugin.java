@@ -0,0 +1,61 @@
+package moe.herz;
+
+import org.pircbotx.hooks.types.GenericMessageEvent;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+/**
+ * {@code .ud}, definitions from Urban Dictionary.
+ */
+public class UrbanDictionaryPlugin implements BotPlugin {
+    private static final String DEFINITIONS = "{\"list\":[{\"definition\":\"A word used for [warming up].\",\"thumbs_up\":12},"
+            + "{\"definition\":\"Another one.\",\"thumbs_up\":3}]}";
+
+    private UrbanDictionaryService urbanDictionaryService;
+
+    @Override
+    public String getName() {
+        return "urbandictionary";
+    }
+
+    @Override
+    public void init(Config config, ChangeListener changeListener) {
+        urbanDictionaryService = new UrbanDictionaryService(config);
+    }
+
+    @Override
+    public List<Command> getCommands() {
+        return List.of(new Command("ud", ".ud ", ".ud <search term> [number]",
+                "Searches Urban Dictionary and provides a definition for the specified term. Add a number to see the other definitions (e.g., '.ud yeet 2').",
+                this::handleUrbanDictionaryCommand));
+    }
+
+    @Override
+    public void warmUp(int rounds) throws IOException {
+        for (int i = 0; i < rounds; i++) {
+            UrbanDictionaryService.readDefinitions(new StringReader(DEFINITIONS));
+            UrbanDictionaryService.normalize("  Warm   Up ");
+        }
+    }
+
+    private void handleUrbanDictionaryCommand(GenericMessageEvent event, String message) {
+        String term = message.substring(4).trim();
+        int page = 1;
+        // A trailing number picks one of the cached definitions, e.g. ".ud yeet 3"
+        int lastSpace = term.lastIndexOf(' ');
+        if (lastSpace > 0 && term.substring(lastSpace + 1).matches("\\d{1,2}")) {
+            page = Integer.parseInt(term.substring(lastSpace + 1));
+            term = term.substring(0, lastSpace).trim();
+        }
+        String definition = urbanDictionaryService.searchUrbanDictionary(term, page);
+        List<String> lines = IrcLinePacker.wrap(definition, Replies.budget(event));
+        for (int i = 0; i < lines.size() && i < 4; i++) {
+            Replies.respond(event, lines.get(i));
+        }
+        if (lines.size() > 4) {
+            Replies.respond(event, "... [message truncated due to length]");
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package moe.herz;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class UrbanDictionaryService {
+    // Terms without definitions are looked up again soon, they might just be new
+    private static final Duration EMPTY_RESULT_TTL = Duration.ofMinutes(1);
+
+    private final String apiKey;
+    private final HttpUrl apiUrl;
+    private final UpstreamGuard guard;
+    private final OkHttpClient client;
+    private final ExpiringCache<String, List<String>> definitionCache;
+    private final Duration cacheTtl;
+    private final SingleFlight<String, List<String>> searchFlight = new SingleFlight<>("urbandictionary");
+    private static final Logger logger = LoggerFactory.getLogger(UrbanDictionaryService.class);
+
+    public UrbanDictionaryService(Config config) {
+        this.apiKey = config.getudapiKey();
+        this.apiUrl = HttpUrl.get(config.getUdApiUrl());
+        this.guard = new UpstreamGuard("urbandictionary", config, 4000);
+        this.client = new OkHttpClient.Builder()
+                .callTimeout(guard.getBudgetMs(), TimeUnit.MILLISECONDS)
+                .build();
+        this.definitionCache = new ExpiringCache<>(config.getUdCacheSize());
+        this.cacheTtl = Duration.ofSeconds(config.getUdCacheTtlSeconds());
+    }
+
+    public String searchUrbanDictionary(String term) {
+        return searchUrbanDictionary(term, 1);
+    }
+
+    /**
+     * Returns the {@code page}-th definition (1-based). All definitions of a term are fetched and
+     * cached together, so paging through them needs no further requests.
+     */
+    public String searchUrbanDictionary(String term, int page) {
+        String key = normalize(term);
+        List<String> definitions;
+        try {
+            definitions = getDefinitions(key);
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof UpstreamUnavailableException) {
+                logger.warn("Urban Dictionary lookup skipped: {}", e.getCause().getMessage());
+                return "Urban Dictionary is not responding right now, try again in a bit.";
+            }
+            logger.error("An error occurred", e.getCause());
+            return "Error connecting to Urban Dictionary API.";
+        } catch (IllegalStateException e) {
+            logger.error("An error occurred", e);
+            return "Error connecting to Urban Dictionary API.";
+        }
+
+        if (definitions.isEmpty()) {
+            return "No definition found for " + term;
+        }
+        if (page < 1 || page > definitions.size()) {
+            String count = definitions.size() == 1 ? "1 definition" : definitions.size() + " definitions";
+            return "Only " + count + " found for " + term;
+        }
+
+        String definition = definitions.get(page - 1);
+        return definitions.size() > 1 ? "[" + page + "/" + definitions.size() + "] " + definition : definition;
+    }
+
+    private List<String> getDefinitions(String key) {
+        List<String> cached = definitionCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return searchFlight.execute(key, () -> {
+            try {
+                List<String> definitions = fetchDefinitions(key);
+                definitionCache.put(key, definitions, definitions.isEmpty() ? EMPTY_RESULT_TTL : cacheTtl);
+                return definitions;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    static String normalize(String term) {
+        return term.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private List<String> fetchDefinitions(String term) throws IOException {
+        Request request = new Request.Builder()
+                .url(apiUrl.newBuilder().addQueryParameter("term", term).build())
+                .get()
+                .addHeader("x-rapidapi-host", "mashape-community-urban-dictionary.p.rapidapi.com")
+                .addHeader("x-rapidapi-key", apiKey)
+                .build();
+
+        return guard.call(() -> {
+            try (Probe probe = Probe.upstream("urbandictionary", request.url().host());
+                 Response response = client.newCall(request).execute()) {
+                probe.status(response.code());
+                // Rate limit and auth errors come without a list, they must not read as "no definitions"
+                if (!response.isSuccessful()) {
+                    throw new IOException("Urban Dictionary API returned " + response.code());
+                }
+                if (response.body() == null) {
+                    throw new IOException("Response body is null");
+                }
+                return readDefinitions(response.body().charStream());
+            }
+        });
+    }
+
+    /**
+     * Pulls the definition texts out of the response, skipping every other field of the entries.
+     */
+    static List<String> readDefinitions(Reader json) throws IOException {
+        List<String> definitions = new ArrayList<>();
+        JsonReader reader = new JsonReader(json);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("list") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("definition") && reader.peek() == JsonToken.STRING) {
+                            definitions.add(reader.nextString());
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                return definitions;
+            }
+            reader.skipValue();
+        }
+        return definitions;
+    }
+}
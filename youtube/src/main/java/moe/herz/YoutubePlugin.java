@@ -0,0 +1,122 @@
+package moe.herz;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.youtube.model.VideoListResponse;
+import org.pircbotx.hooks.events.MessageEvent;
+import org.pircbotx.hooks.types.GenericMessageEvent;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@code .yt} searches and details for YouTube video, playlist and channel links.
+ */
+public class YoutubePlugin implements BotPlugin {
+    private static final String VIDEOS = "{\"items\":[{\"snippet\":{\"title\":\"Roygbiv\",\"channelTitle\":\"Warp\"},"
+            + "\"statistics\":{\"viewCount\":\"1234567\"}}]}";
+
+    private YoutubeService youtubeService;
+
+    @Override
+    public String getName() {
+        return "youtube";
+    }
+
+    @Override
+    public void init(Config config, ChangeListener changeListener) {
+        youtubeService = new YoutubeService(config);
+    }
+
+    @Override
+    public List<Command> getCommands() {
+        return List.of(new Command("yt", ".yt ", ".yt <search term>",
+                "Searches YouTube and returns a video matching the provided search term.", this::handleYoutubeCommand));
+    }
+
+    @Override
+    public List<LinkHandler> getLinkHandlers() {
+        return List.of(this::handleLink);
+    }
+
+    @Override
+    public void warmUp(int rounds) throws IOException {
+        for (int i = 0; i < rounds; i++) {
+            GsonFactory.getDefaultInstance().fromString(VIDEOS, VideoListResponse.class);
+        }
+    }
+
+    private void handleYoutubeCommand(GenericMessageEvent event, String message) {
+        String query = message.substring(4);
+        String videoUrl = youtubeService.searchYoutube(query);
+        if (videoUrl != null) {
+            Replies.respond(event, videoUrl);
+        }
+    }
+
+    // Playlist and channel links still get their page title afterwards, only videos are answered in full
+    private boolean handleLink(GenericMessageEvent event, String url) {
+        String videoId = null;
+
+        if (url.contains("youtube.com/watch?v=")) {
+            Pattern pattern = Pattern.compile("v=([^&]*)");
+            Matcher videoMatcher = pattern.matcher(url);
+            if (videoMatcher.find()) {
+                videoId = videoMatcher.group(1);
+            }
+        } else if (url.contains("youtu.be/")) {
+            Pattern pattern = Pattern.compile("youtu\\.be/([^?&]*)");
+            Matcher videoMatcher = pattern.matcher(url);
+            if (videoMatcher.find()) {
+                videoId = videoMatcher.group(1);
+            }
+        } else if (url.contains("youtube.com/playlist?list=")) {
+            Pattern pattern = Pattern.compile("list=([^&]*)");
+            Matcher playlistMatcher = pattern.matcher(url);
+            if (playlistMatcher.find()) {
+                String playlistId = playlistMatcher.group(1);
+                String playlistDetails = youtubeService.getPlaylistDetails(playlistId);
+                if (playlistDetails != null) {
+                    Replies.respond(event, playlistDetails);
+                }
+            }
+        } else if (url.contains("youtube.com/@")) {
+            Pattern pattern = Pattern.compile("@([a-zA-Z0-9_-]+)");
+            Matcher usernameMatcher = pattern.matcher(url);
+            if (usernameMatcher.find()) {
+                String username = usernameMatcher.group(1);
+                String channelId = youtubeService.getChannelIdFromUsernameUsingSearch(username);
+                if (channelId != null) {
+                    String channelDetails = youtubeService.getChannelDetails(channelId);
+                    if (channelDetails != null) {
+                        Replies.respond(event, channelDetails);
+                    }
+                }
+            }
+
+        } else if (url.contains("youtube.com/channel/")) {
+            Pattern pattern = Pattern.compile("channel/([a-zA-Z0-9_-]+)");
+            Matcher channelMatcher = pattern.matcher(url);
+            if (channelMatcher.find()) {
+                String channelId = channelMatcher.group(1);
+                String channelDetails = youtubeService.getChannelDetails(channelId);
+                if (channelDetails != null) {
+                    Replies.respond(event, channelDetails);
+                }
+            }
+        }
+
+        if (videoId == null) {
+            return false;
+        }
+        String videoDetails = youtubeService.getVideoDetails(videoId);
+        if (videoDetails != null) {
+            if (event instanceof MessageEvent messageEvent) {
+                String channel = messageEvent.getChannel().getName();
+                Probe.send("youtube").run(() -> messageEvent.getBot().sendIRC().message(channel, videoDetails));
+            }
+        }
+        return true;
+    }
+}
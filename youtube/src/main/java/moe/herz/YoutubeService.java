@@ -0,0 +1,321 @@
+package moe.herz;
+
+import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
+import com.google.api.services.youtube.YouTube;
+import com.google.api.services.youtube.model.*;
+import org.apache.commons.text.StringEscapeUtils;
+import com.google.api.client.json.gson.GsonFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.text.NumberFormat;
+import java.time.Duration;
+import java.util.List;
+import java.util.Collections;
+import java.text.DecimalFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.google.api.services.youtube.model.ChannelListResponse;
+import com.google.api.services.youtube.model.Channel;
+
+public class YoutubeService {
+    private volatile YouTube youtube;
+    private final String rootUrl;
+    private final String apiHost;
+    private final int timeoutMs;
+    private final String apiKey;
+    private final UpstreamGuard guard;
+    private final ExpiringCache<String, CachedDetails> detailsCache;
+    private final long freshNanos;
+    private final SingleFlight<String, String> videoFlight = new SingleFlight<>("youtube");
+    private final SingleFlight<String, String> playlistFlight = new SingleFlight<>("youtube");
+    private final SingleFlight<String, String> channelFlight = new SingleFlight<>("youtube");
+    private static final Logger logger = LoggerFactory.getLogger(YoutubeService.class);
+    // Stale entries are kept around this long so they can still be revalidated with their ETag
+    private static final Duration CACHE_RETENTION = Duration.ofDays(1);
+
+    private record CachedDetails(String etag, String text, long freshUntil) {
+    }
+
+    // A response, null for 304 Not Modified, with the ETag it came with
+    private record Reply<T>(T response, String etag) {
+    }
+
+    /**
+     * Builds the request for one attempt. Hedged attempts run side by side and a request object
+     * keeps the status and headers of its last response, so every attempt gets its own.
+     */
+    private interface RequestFactory<T> {
+        AbstractGoogleClientRequest<T> create() throws IOException;
+    }
+
+    public YoutubeService(Config config) {
+        this.apiKey = config.getytapiKey();
+        this.guard = new UpstreamGuard("youtube", config, 4000);
+        this.detailsCache = new ExpiringCache<>(config.getYtCacheSize());
+        this.freshNanos = TimeUnit.SECONDS.toNanos(config.getYtCacheFreshSeconds());
+        this.timeoutMs = (int) guard.getBudgetMs();
+        this.rootUrl = config.getYtRootUrl() != null ? config.getYtRootUrl() : YouTube.DEFAULT_ROOT_URL;
+        this.apiHost = URI.create(rootUrl).getHost();
+    }
+
+    // The transport loads the trust store, so it is built on the first request instead of at startup
+    private YouTube youtube() throws IOException {
+        YouTube client = youtube;
+        if (client == null) {
+            synchronized (this) {
+                client = youtube;
+                if (client == null) {
+                    try {
+                        client = new YouTube.Builder(GoogleNetHttpTransport.newTrustedTransport(),
+                                GsonFactory.getDefaultInstance(), httpRequest -> {
+                                    httpRequest.setConnectTimeout(timeoutMs);
+                                    httpRequest.setReadTimeout(timeoutMs);
+                                })
+                                .setApplicationName("musicbot2")
+                                .setRootUrl(rootUrl)
+                                .build();
+                    } catch (GeneralSecurityException e) {
+                        throw new IOException("Could not set up the YouTube transport", e);
+                    }
+                    youtube = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    public String searchYoutube(String query) {
+        try {
+            SearchListResponse searchResponse = execute(() -> {
+                YouTube.Search.List search = youtube().search().list(Collections.singletonList("id"));
+                search.setKey(apiKey);
+                search.setQ(query);
+                search.setType(Collections.singletonList("video"));
+                search.setFields("items/id/videoId");
+                search.setMaxResults(1L);
+                return search;
+            }, null).response();
+            List<SearchResult> searchResultList = searchResponse.getItems();
+
+            if (!searchResultList.isEmpty()) {
+                SearchResult video = searchResultList.get(0);
+                String videoId = video.getId().getVideoId();
+
+                // Get video statistics
+                return getVideoDetails(videoId);
+            }
+        } catch (UpstreamUnavailableException e) {
+            logger.warn("YouTube search skipped: {}", e.getMessage());
+            return "YouTube is not responding right now, try again in a bit.";
+        } catch (Exception e) {
+            logger.error("An error occurred", e);
+        }
+        return null;
+    }
+
+    public String getVideoDetails(String videoId) {
+        return videoFlight.execute(videoId, () -> fetchVideoDetails(videoId));
+    }
+
+    private String fetchVideoDetails(String videoId) {
+        try {
+            return revalidate("video:" + videoId, () -> {
+                YouTube.Videos.List request = youtube().videos().list(Collections.singletonList("snippet,statistics"));
+                request.setKey(apiKey);
+                request.setId(Collections.singletonList(videoId));
+                request.setFields("items(snippet(title,channelTitle),statistics/viewCount)");
+                return request;
+            }, response -> {
+                List<Video> videos = response.getItems();
+                if (videos == null || videos.isEmpty()) {
+                    return null;
+                }
+                Video video = videos.get(0);
+                String title = video.getSnippet().getTitle();
+                String channel = video.getSnippet().getChannelTitle();
+                BigInteger views = video.getStatistics().getViewCount();
+
+                // Format views count
+                NumberFormat formatter = NumberFormat.getInstance();
+                String formattedViews = formatter.format(views);
+
+                // Format the title and channel
+                title = StringEscapeUtils.unescapeHtml4(title);
+                channel = StringEscapeUtils.unescapeHtml4(channel);
+
+                return //"https://www.youtube.com/watch?v=" + videoId
+                        String.format("%s | Channel: %s | Views: %s | ", title, channel, formattedViews) + "https://www.youtube.com/watch?v=" + videoId;
+            });
+        } catch (Exception e) {
+            logger.error("An error occurred", e);
+        }
+        return null;
+    }
+
+    public String getPlaylistDetails(String playlistId) {
+        return playlistFlight.execute(playlistId, () -> fetchPlaylistDetails(playlistId));
+    }
+
+    private String fetchPlaylistDetails(String playlistId) {
+        try {
+            return revalidate("playlist:" + playlistId, () -> {
+                YouTube.Playlists.List request = youtube().playlists().list(Collections.singletonList("snippet,contentDetails"));
+                request.setKey(apiKey);
+                request.setId(Collections.singletonList(playlistId));
+                request.setFields("items(snippet/title,contentDetails/itemCount)");
+                return request;
+            }, response -> {
+                List<Playlist> playlists = response.getItems();
+                if (playlists == null || playlists.isEmpty()) {
+                    return null;
+                }
+                Playlist playlist = playlists.get(0);
+                String title = playlist.getSnippet().getTitle();
+                Long itemCount = playlist.getContentDetails().getItemCount();
+
+                return String.format("YouTube Playlist | %s | Number of Videos: %d", title, itemCount);
+            });
+        } catch (Exception e) {
+            logger.error("An error occurred", e);
+        }
+        return null;
+    }
+
+    public String getChannelDetails(String channelId) {
+        return channelFlight.execute(channelId, () -> fetchChannelDetails(channelId));
+    }
+
+    private String fetchChannelDetails(String channelId) {
+        try {
+            return revalidate("channel:" + channelId, () -> {
+                YouTube.Channels.List request = youtube().channels().list(Collections.singletonList("snippet,statistics"));
+                request.setKey(apiKey);
+                request.setId(Collections.singletonList(channelId));
+                request.setFields("items(snippet/title,statistics/subscriberCount)");
+                return request;
+            }, response -> {
+                List<Channel> channels = response.getItems();
+                if (channels == null || channels.isEmpty()) {
+                    return null;
+                }
+                Channel channel = channels.get(0);
+                String title = channel.getSnippet().getTitle();
+                BigInteger subscriberCount = channel.getStatistics().getSubscriberCount();
+
+                // Convert subscriberCount to a human-readable format
+                String humanReadableSubCount = toHumanReadableFormat(subscriberCount);
+
+                return String.format("%s | Number of Followers: %s", title, humanReadableSubCount);
+            });
+        } catch (Exception e) {
+            logger.error("An error occurred", e);
+        }
+        return null;
+    }
+
+    /**
+     * Serves a fresh cached reply directly. Once it has gone stale the request is sent with the
+     * cached ETag in If-None-Match, and a 304 keeps the cached reply for another fresh period.
+     */
+    private <T> String revalidate(String key, RequestFactory<T> factory, Function<T, String> format) throws IOException {
+        CachedDetails cached = detailsCache.get(key);
+        if (cached != null && System.nanoTime() - cached.freshUntil() < 0) {
+            return cached.text();
+        }
+
+        Reply<T> reply = execute(factory, cached != null ? cached.etag() : null);
+        if (reply.response() == null) {
+            detailsCache.put(key, new CachedDetails(cached.etag(), cached.text(), System.nanoTime() + freshNanos), CACHE_RETENTION);
+            return cached.text();
+        }
+
+        String text = format.apply(reply.response());
+        if (text != null && reply.etag() != null) {
+            detailsCache.put(key, new CachedDetails(reply.etag(), text, System.nanoTime() + freshNanos), CACHE_RETENTION);
+        }
+        return text;
+    }
+
+    /**
+     * @param ifNoneMatch ETag to revalidate, or null
+     * @return the reply, whose response is null if the server answered 304 Not Modified
+     */
+    private <T> Reply<T> execute(RequestFactory<T> factory, String ifNoneMatch) throws IOException {
+        return guard.call(() -> {
+            AbstractGoogleClientRequest<T> request = factory.create();
+            if (ifNoneMatch != null) {
+                request.setRequestHeaders(new HttpHeaders().setIfNoneMatch(ifNoneMatch));
+            }
+            try (Probe probe = Probe.upstream("youtube", apiHost)) {
+                try {
+                    T response = request.execute();
+                    probe.status(request.getLastStatusCode());
+                    HttpHeaders headers = request.getLastResponseHeaders();
+                    return new Reply<>(response, headers != null ? headers.getETag() : null);
+                } catch (HttpResponseException e) {
+                    probe.status(e.getStatusCode());
+                    if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_MODIFIED) {
+                        return new Reply<T>(null, null);
+                    }
+                    throw e;
+                }
+            }
+        });
+    }
+
+    // This method converts a BigInteger to a human-readable string
+    public String toHumanReadableFormat(BigInteger number) {
+        String[] suffix = {"", "K", "M", "B", "T"};
+        int i;
+        double num = number.doubleValue();
+        for (i = 0; i < suffix.length; i++) {
+            if (num < 1000) break;
+            num /= 1000;
+        }
+        DecimalFormat df = new DecimalFormat("#.#");
+        return df.format(num) + suffix[i];
+    }
+
+    public String getChannelIdFromUsernameUsingSearch(String username) {
+        try {
+            SearchListResponse searchResponse = execute(() -> {
+                // Create a search.list() request
+                YouTube.Search.List searchRequest = youtube().search().list(Collections.singletonList("id"));
+
+                // Include the "@" symbol in the search query
+                searchRequest.setQ("@" + username);
+
+                searchRequest.setType(Collections.singletonList("channel"));
+                searchRequest.setKey(apiKey);
+                searchRequest.setFields("items/id/channelId");
+                searchRequest.setMaxResults(1L);
+                return searchRequest;
+            }, null).response();
+            List<SearchResult> searchResultList = searchResponse.getItems();
+
+            // If no channels are found for the given username, return null
+            if (searchResultList == null || searchResultList.isEmpty()) {
+                return null;
+            }
+
+            // Since you've found that the first result is reliably the channel you're looking for,
+            // you can simply return its channel ID
+            return searchResultList.get(0).getId().getChannelId();
+
+        } catch (Exception e) {
+            logger.error("An error occurred while retrieving the channel ID", e);
+            return null;
+        }
+    }
+
+}